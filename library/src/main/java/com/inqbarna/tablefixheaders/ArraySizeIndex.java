@@ -0,0 +1,173 @@
+package com.inqbarna.tablefixheaders;
+
+/**
+ * A {@link SizeIndex} that knows every size. It is backed by a Fenwick tree
+ * so a single size can be changed without recomputing every sum. The arrays
+ * have room for more sizes, so inserts and removes only move the sizes after
+ * them and compute again the nodes of the tree that sum them.
+ */
+class ArraySizeIndex extends SizeIndex {
+
+	private final Provider provider;
+
+	private int count;
+	private int[] sizes;
+	private int[] tree;
+
+	/**
+	 * Constructor
+	 *
+	 * @param count
+	 *            The number of sizes, header included.
+	 * @param provider
+	 *            Who knows the sizes. All of them are read now.
+	 */
+	ArraySizeIndex(int count, Provider provider) {
+		this.provider = provider;
+		this.count = count;
+		this.sizes = new int[count];
+		this.tree = new int[count + 1];
+		for (int i = 0; i < count; i++) {
+			sizes[i] = provider.getSize(i);
+		}
+		rebuild(0);
+	}
+
+	/**
+	 * Constructor of an index that can not be updated.
+	 *
+	 * @param sizes
+	 *            The sizes to index. The array is owned by the index from now
+	 *            on.
+	 */
+	ArraySizeIndex(int[] sizes) {
+		this.provider = null;
+		this.count = sizes.length;
+		this.sizes = sizes;
+		this.tree = new int[count + 1];
+		rebuild(0);
+	}
+
+	@Override
+	int size() {
+		return count;
+	}
+
+	@Override
+	int get(int index) {
+		return sizes[index];
+	}
+
+	/**
+	 * Changes the size at the position <code>index</code>.
+	 *
+	 * @param index
+	 *            the position of the size.
+	 * @param value
+	 *            the new size.
+	 */
+	void set(int index, int value) {
+		final int diff = value - sizes[index];
+		if (diff == 0) {
+			return;
+		}
+		sizes[index] = value;
+		for (int i = index + 1; i <= count; i += i & -i) {
+			tree[i] += diff;
+		}
+	}
+
+	@Override
+	int prefix(int end) {
+		int sum = 0;
+		for (int i = end; i > 0; i -= i & -i) {
+			sum += tree[i];
+		}
+		return sum;
+	}
+
+	@Override
+	int indexOf(int offset) {
+		int index = 0;
+		for (int step = Integer.highestOneBit(count); step > 0; step >>= 1) {
+			final int next = index + step;
+			if (next <= count && tree[next] <= offset) {
+				index = next;
+				offset -= tree[next];
+			}
+		}
+		return index;
+	}
+
+	@Override
+	void update(int index, int count) {
+		for (int i = index; i < index + count; i++) {
+			set(i, provider.getSize(i));
+		}
+	}
+
+	@Override
+	void insert(int index, int count) {
+		ensureCapacity(this.count + count);
+		System.arraycopy(sizes, index, sizes, index + count, this.count - index);
+		for (int i = index; i < index + count; i++) {
+			sizes[i] = provider.getSize(i);
+		}
+		this.count += count;
+		rebuild(index);
+	}
+
+	@Override
+	void remove(int index, int count) {
+		System.arraycopy(sizes, index + count, sizes, index, this.count - index - count);
+		this.count -= count;
+		rebuild(index);
+	}
+
+	@Override
+	SizeIndex stretch(int size) {
+		final float factor = size / (float) sum();
+		final int[] stretched = new int[count];
+		int sum = 0;
+		for (int i = 1; i < count; i++) {
+			stretched[i] = Math.round(sizes[i] * factor);
+			sum += stretched[i];
+		}
+		stretched[0] = size - sum;
+		return new ArraySizeIndex(stretched);
+	}
+
+	/*
+	 * Grows the arrays, at least doubling them, so a sequence of inserts
+	 * allocates a logarithmic number of times.
+	 */
+	private void ensureCapacity(int capacity) {
+		if (capacity <= sizes.length) {
+			return;
+		}
+		final int newCapacity = Math.max(capacity, sizes.length * 2);
+		final int[] newSizes = new int[newCapacity];
+		final int[] newTree = new int[newCapacity + 1];
+		System.arraycopy(sizes, 0, newSizes, 0, count);
+		System.arraycopy(tree, 0, newTree, 0, count + 1);
+		sizes = newSizes;
+		tree = newTree;
+	}
+
+	/*
+	 * Computes again the nodes of the tree after the position from. The nodes
+	 * before it only sum sizes before it, so they do not change. Each node
+	 * is its own size plus the nodes of the ranges just before it, which are
+	 * computed first.
+	 */
+	private void rebuild(int from) {
+		for (int i = from + 1; i <= count; i++) {
+			int sum = sizes[i - 1];
+			final int range = i & -i;
+			for (int child = 1; child < range; child <<= 1) {
+				sum += tree[i - child];
+			}
+			tree[i] = sum;
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package com.inqbarna.tablefixheaders;
+
+import android.graphics.Canvas;
+
+/**
+ * Draws cells of the body of a {@link TableFixHeaders} straight on its
+ * canvas, so they need no view. A table of read-only cells then needs no
+ * view per cell to measure, lay out and keep in memory.
+ */
+public interface CellRenderer {
+
+	/**
+	 * Returns if a cell is drawn by this renderer. Otherwise it gets a view
+	 * from the adapter, as usual. A change of the answer is seen when the
+	 * adapter notifies a change of the cell.
+	 * 
+	 * @param row
+	 *            the row of the cell.
+	 * @param column
+	 *            the column of the cell.
+	 * @return <code>true</code> if the cell is drawn by this renderer.
+	 */
+	public boolean isRendered(int row, int column);
+
+	/**
+	 * Draws a cell, background included. The canvas is already clipped to
+	 * the body of the table.
+	 * 
+	 * @param canvas
+	 *            the canvas of the table.
+	 * @param row
+	 *            the row of the cell.
+	 * @param column
+	 *            the column of the cell.
+	 * @param left
+	 *            the left side of the cell, relative to the table.
+	 * @param top
+	 *            the top side of the cell, relative to the table.
+	 * @param right
+	 *            the right side of the cell, relative to the table.
+	 * @param bottom
+	 *            the bottom side of the cell, relative to the table.
+	 */
+	public void drawCell(Canvas canvas, int row, int column, int left, int top, int right, int bottom);
+}
@@ -0,0 +1,114 @@
+package com.inqbarna.tablefixheaders;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * A list backed by a circular array. Adding or removing at both ends costs
+ * O(1), so it can hold the rows and columns of views that enter and leave
+ * the viewport by either side. In the middle the shorter side is moved.
+ */
+final class CircularList<E> extends AbstractList<E> implements RandomAccess {
+
+	private Object[] elements;
+	private int head;
+	private int size;
+
+	/**
+	 * Constructor
+	 */
+	CircularList() {
+		elements = new Object[8];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public E get(int index) {
+		checkIndex(index, size);
+		return (E) elements[position(index)];
+	}
+
+	@Override
+	public E set(int index, E element) {
+		final E old = get(index);
+		elements[position(index)] = element;
+		return old;
+	}
+
+	@Override
+	public void add(int index, E element) {
+		checkIndex(index, size + 1);
+		if (size == elements.length) {
+			grow();
+		}
+		final int mask = elements.length - 1;
+		if (index < size / 2) {
+			head = (head - 1) & mask;
+			for (int i = 0; i < index; i++) {
+				elements[(head + i) & mask] = elements[(head + i + 1) & mask];
+			}
+		} else {
+			for (int i = size; i > index; i--) {
+				elements[(head + i) & mask] = elements[(head + i - 1) & mask];
+			}
+		}
+		elements[(head + index) & mask] = element;
+		size++;
+		modCount++;
+	}
+
+	@Override
+	public E remove(int index) {
+		final E old = get(index);
+		final int mask = elements.length - 1;
+		if (index < size / 2) {
+			for (int i = index; i > 0; i--) {
+				elements[(head + i) & mask] = elements[(head + i - 1) & mask];
+			}
+			elements[head] = null;
+			head = (head + 1) & mask;
+		} else {
+			for (int i = index; i < size - 1; i++) {
+				elements[(head + i) & mask] = elements[(head + i + 1) & mask];
+			}
+			elements[(head + size - 1) & mask] = null;
+		}
+		size--;
+		modCount++;
+		return old;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			elements[position(i)] = null;
+		}
+		head = 0;
+		size = 0;
+		modCount++;
+	}
+
+	private int position(int index) {
+		return (head + index) & (elements.length - 1);
+	}
+
+	private void grow() {
+		final Object[] grown = new Object[elements.length * 2];
+		for (int i = 0; i < size; i++) {
+			grown[i] = elements[position(i)];
+		}
+		elements = grown;
+		head = 0;
+	}
+
+	private static void checkIndex(int index, int size) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+}
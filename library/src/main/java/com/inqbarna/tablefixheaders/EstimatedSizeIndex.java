@@ -0,0 +1,187 @@
+package com.inqbarna.tablefixheaders;
+
+/**
+ * A {@link SizeIndex} that only asks for the sizes that are read. The sizes
+ * not asked yet are estimated with the average of the ones already known, so
+ * the estimate gets better as the table is scrolled.
+ * 
+ * The header and the first size are known from the beginning. The rest of the
+ * known sizes are kept sorted by position, so the memory used depends on the
+ * cells shown and not on the size of the table.
+ */
+class EstimatedSizeIndex extends SizeIndex {
+
+	private final Provider provider;
+	private int count;
+
+	private int[] keys;
+	private int[] values;
+	private int[] partialSums;
+	private int knownCount;
+
+	private long knownBodySum;
+	private int knownBodyCount;
+	private int estimate;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param count
+	 *            The number of sizes, header included.
+	 * @param provider
+	 *            Who knows the sizes.
+	 */
+	EstimatedSizeIndex(int count, Provider provider) {
+		this.count = count;
+		this.provider = provider;
+		this.keys = new int[8];
+		this.values = new int[8];
+		this.partialSums = new int[9];
+
+		for (int i = 0; i < count && i < 2; i++) {
+			get(i);
+		}
+	}
+
+	@Override
+	int size() {
+		return count;
+	}
+
+	/**
+	 * Returns the size at the position <code>index</code>, asking it to the
+	 * provider if it was not known.
+	 */
+	@Override
+	int get(int index) {
+		final int position = lowerBound(index);
+		if (position < knownCount && keys[position] == index) {
+			return values[position];
+		}
+		final int value = provider.getSize(index);
+		insert(position, index, value);
+		return value;
+	}
+
+	@Override
+	int prefix(int end) {
+		final int known = lowerBound(end);
+		return (end - known) * estimate + partialSums[known];
+	}
+
+	@Override
+	int indexOf(int offset) {
+		int low = 0;
+		int high = count;
+		while (low < high) {
+			final int middle = (low + high + 1) >>> 1;
+			if (prefix(middle) <= offset) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+	@Override
+	void update(int index, int count) {
+		forget(index, index + count);
+		if (index == 0) {
+			get(0);
+		}
+	}
+
+	@Override
+	void insert(int index, int count) {
+		for (int i = lowerBound(index); i < knownCount; i++) {
+			keys[i] += count;
+		}
+		this.count += count;
+	}
+
+	@Override
+	void remove(int index, int count) {
+		forget(index, index + count);
+		for (int i = lowerBound(index); i < knownCount; i++) {
+			keys[i] -= count;
+		}
+		this.count -= count;
+	}
+
+	@Override
+	SizeIndex stretch(int size) {
+		return this;
+	}
+
+	/*
+	 * Number of known positions lower than index.
+	 */
+	private int lowerBound(int index) {
+		int low = 0;
+		int high = knownCount;
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			if (keys[middle] < index) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private void insert(int position, int index, int value) {
+		if (knownCount == keys.length) {
+			keys = copyOf(keys, knownCount * 2);
+			values = copyOf(values, knownCount * 2);
+			partialSums = copyOf(partialSums, knownCount * 2 + 1);
+		}
+		System.arraycopy(keys, position, keys, position + 1, knownCount - position);
+		System.arraycopy(values, position, values, position + 1, knownCount - position);
+		keys[position] = index;
+		values[position] = value;
+		knownCount++;
+		for (int i = position; i < knownCount; i++) {
+			partialSums[i + 1] = partialSums[i] + values[i];
+		}
+
+		if (index > 0) {
+			knownBodySum += value;
+			knownBodyCount++;
+			estimate = Math.round(knownBodySum / (float) knownBodyCount);
+		}
+	}
+
+	/*
+	 * Forgets the known sizes in [from, to), so they are estimated again.
+	 */
+	private void forget(int from, int to) {
+		final int first = lowerBound(from);
+		final int last = lowerBound(to);
+		if (first == last) {
+			return;
+		}
+		for (int i = first; i < last; i++) {
+			if (keys[i] > 0) {
+				knownBodySum -= values[i];
+				knownBodyCount--;
+			}
+		}
+		System.arraycopy(keys, last, keys, first, knownCount - last);
+		System.arraycopy(values, last, values, first, knownCount - last);
+		knownCount -= last - first;
+		for (int i = first; i < knownCount; i++) {
+			partialSums[i + 1] = partialSums[i] + values[i];
+		}
+		if (knownBodyCount > 0) {
+			estimate = Math.round(knownBodySum / (float) knownBodyCount);
+		}
+	}
+
+	private static int[] copyOf(int[] array, int length) {
+		final int[] copy = new int[length];
+		System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+		return copy;
+	}
+}
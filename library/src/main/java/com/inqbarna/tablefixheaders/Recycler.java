@@ -1,17 +1,21 @@
 package com.inqbarna.tablefixheaders;
 
-import java.util.Stack;
+import java.util.ArrayList;
 
 import android.view.View;
 
 /**
- * The Recycler facilitates reuse of views across layouts.
+ * The Recycler facilitates reuse of views across layouts. The same Recycler
+ * can be shared by several {@link TableFixHeaders} with the same Context,
+ * as long as their adapters give the same view type to the same kind of
+ * view.
  * 
  * @author Brais Gabín (InQBarna)
  */
 public class Recycler {
 
-	private Stack<View>[] views;
+	private ArrayList<View>[] views;
+	private int[] maxViews;
 
 	/**
 	 * Constructor
@@ -21,9 +25,30 @@ public class Recycler {
 	 */
 	@SuppressWarnings("unchecked")
 	public Recycler(int size) {
-		views = new Stack[size];
+		views = new ArrayList[size];
+		maxViews = new int[size];
 		for (int i = 0; i < size; i++) {
-			views[i] = new Stack<View>();
+			views[i] = new ArrayList<View>();
+			maxViews[i] = Integer.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * Sets how many views of a type the Recycler keeps. The views beyond that
+	 * number are dropped and removed from the table that had them. There is no
+	 * limit by default.
+	 * 
+	 * @param type
+	 *            the type of the views.
+	 * @param max
+	 *            the maximum number of views of the type <code>type</code>.
+	 */
+	public void setMaxRecycledViews(int type, int max) {
+		ensureTypeCount(type + 1);
+		maxViews[type] = max;
+		final ArrayList<View> stack = views[type];
+		for (int i = stack.size() - 1; i >= max; i--) {
+			TableFixHeaders.releaseDroppedView(stack.remove(i));
 		}
 	}
 
@@ -35,9 +60,17 @@ public class Recycler {
 	 *            A view to add to the Recycler. It can no longer be used.
 	 * @param type
 	 *            the type of the view.
+	 * @return <code>false</code> if the view is dropped, because the Recycler
+	 *         already keeps as many views of the type as it can.
 	 */
-	public void addRecycledView(View view, int type) {
-		views[type].push(view);
+	public boolean addRecycledView(View view, int type) {
+		ensureTypeCount(type + 1);
+		final ArrayList<View> stack = views[type];
+		if (stack.size() >= maxViews[type]) {
+			return false;
+		}
+		stack.add(view);
+		return true;
 	}
 
 	/**
@@ -49,11 +82,50 @@ public class Recycler {
 	 *         not found.
 	 */
 	public View getRecycledView(int typeView) {
-		try {
-			return views[typeView].pop();
-		} catch (java.util.EmptyStackException e) {
+		if (typeView >= views.length) {
 			return null;
+		}
+		final ArrayList<View> stack = views[typeView];
+		final int size = stack.size();
+		if (size == 0) {
+			return null;
+		}
+		return stack.remove(size - 1);
+	}
+
+	/*
+	 * The number of types of view the Recycler has room for.
+	 */
+	int getViewTypeCount() {
+		return views.length;
+	}
+
+	/*
+	 * How many views of a type the Recycler keeps.
+	 */
+	int getRecycledViewCount(int type) {
+		return views[type].size();
+	}
 
+	/*
+	 * Makes room for more types of view, because an adapter that shares this
+	 * Recycler may have more types than the one it was created for.
+	 */
+	@SuppressWarnings("unchecked")
+	private void ensureTypeCount(int size) {
+		final int oldSize = views.length;
+		if (size <= oldSize) {
+			return;
+		}
+		final ArrayList<View>[] newViews = new ArrayList[size];
+		final int[] newMaxViews = new int[size];
+		System.arraycopy(views, 0, newViews, 0, oldSize);
+		System.arraycopy(maxViews, 0, newMaxViews, 0, oldSize);
+		for (int i = oldSize; i < size; i++) {
+			newViews[i] = new ArrayList<View>();
+			newMaxViews[i] = Integer.MAX_VALUE;
 		}
+		views = newViews;
+		maxViews = newMaxViews;
 	}
 }
@@ -0,0 +1,119 @@
+package com.inqbarna.tablefixheaders;
+
+/**
+ * Holds the sizes of the columns (or rows) of a table and answers range sums
+ * and offset lookups over them. The position <code>0</code> is the header.
+ */
+abstract class SizeIndex {
+
+	/**
+	 * @return the number of sizes, header included.
+	 */
+	abstract int size();
+
+	/**
+	 * @param index
+	 *            the position of the size.
+	 * @return the size at the position <code>index</code>.
+	 */
+	abstract int get(int index);
+
+	/**
+	 * @param end
+	 *            the position after the last size to sum.
+	 * @return the sum of the sizes in <code>[0, end)</code>.
+	 */
+	abstract int prefix(int end);
+
+	/**
+	 * Finds the position that contains an offset, measured from the start of
+	 * the position <code>0</code>.
+	 *
+	 * @param offset
+	 *            the offset, in pixels.
+	 * @return the position <code>i</code> that satisfies
+	 *         <code>sum(0, i) <= offset < sum(0, i + 1)</code>, or
+	 *         {@link #size()} if the offset is beyond the last size.
+	 */
+	abstract int indexOf(int offset);
+
+	/**
+	 * Returns an index with the sizes scaled so they sum <code>size</code>.
+	 * The header takes the rounding error.
+	 * 
+	 * @param size
+	 *            the sum of the scaled sizes.
+	 * @return the scaled index. An index that does not know all its sizes
+	 *         can not scale them and returns itself.
+	 */
+	abstract SizeIndex stretch(int size);
+
+	/**
+	 * Reads again some sizes from the provider, because they may have changed.
+	 * An index that reads its sizes lazily reads them when they are needed.
+	 * 
+	 * @param index
+	 *            the position of the first size.
+	 * @param count
+	 *            how many sizes.
+	 */
+	abstract void update(int index, int count);
+
+	/**
+	 * Adds new sizes, read from the provider. The sizes that were at
+	 * <code>index</code> and after are moved <code>count</code> positions
+	 * later.
+	 * 
+	 * @param index
+	 *            the position of the first new size.
+	 * @param count
+	 *            how many sizes.
+	 */
+	abstract void insert(int index, int count);
+
+	/**
+	 * Removes some sizes. The sizes after them are moved <code>count</code>
+	 * positions before.
+	 * 
+	 * @param index
+	 *            the position of the first size to remove.
+	 * @param count
+	 *            how many sizes.
+	 */
+	abstract void remove(int index, int count);
+
+	/**
+	 * @return the sum of all the sizes.
+	 */
+	int sum() {
+		return prefix(size());
+	}
+
+	/**
+	 * @param firstIndex
+	 *            the position of the first size to sum.
+	 * @param count
+	 *            how many sizes to sum.
+	 * @return the sum of <code>count</code> sizes starting at
+	 *         <code>firstIndex</code>.
+	 */
+	int sum(int firstIndex, int count) {
+		if (count <= 0) {
+			return 0;
+		}
+		return prefix(firstIndex + count) - prefix(firstIndex);
+	}
+
+	/**
+	 * Gives the sizes to the indexes.
+	 */
+	interface Provider {
+
+		/**
+		 * @param index
+		 *            the position of the size.
+		 * @return the size at the position <code>index</code>.
+		 */
+		int getSize(int index);
+	}
+}
@@ -1,22 +1,35 @@
 package com.inqbarna.tablefixheaders;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import com.inqbarna.tablefixheaders.adapters.FixedSizeTableAdapter;
+import com.inqbarna.tablefixheaders.adapters.PlaceholderTableAdapter;
+import com.inqbarna.tablefixheaders.adapters.PrewarmTableAdapter;
 import com.inqbarna.tablefixheaders.adapters.TableAdapter;
+import com.inqbarna.tablefixheaders.adapters.TableDataSetObserver;
 
 import android.annotation.SuppressLint;
 import android.annotation.TargetApi;
 import android.content.Context;
-import android.database.DataSetObserver;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.RecordingCanvas;
+import android.graphics.RenderNode;
 import android.os.Build;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Trace;
 import android.util.AttributeSet;
+import android.view.Display;
 import android.view.MotionEvent;
 import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
+import android.view.WindowManager;
+import android.view.animation.Animation;
 import android.widget.ImageView;
 import android.widget.Scroller;
 
@@ -27,6 +40,14 @@ import android.widget.Scroller;
  * @author Brais Gabín (InQBarna)
  */
 public class TableFixHeaders extends ViewGroup {
+	/*
+	 * The refresh rate assumed when the display reports none, or one too low
+	 * to be true.
+	 */
+	private static final float DEFAULT_REFRESH_RATE = 60;
+	private static final float MIN_REFRESH_RATE = 30;
+	private static final int MAX_PREFETCH = 3;
+
 	private int currentX;
 	private int currentY;
 
@@ -35,14 +56,23 @@ public class TableFixHeaders extends ViewGroup {
 	private int scrollY;
 	private int firstRow;
 	private int firstColumn;
-	private int[] widths;
-	private int[] heights;
+	private SizeIndex widths;
+	private SizeIndex heights;
+	private SizeIndex naturalWidths;
+	private int stretchedWidth;
+	private int widthMeasureSpec;
+	private int heightMeasureSpec;
+	private boolean sizesChanged;
+	private int sizeRebuildCount;
 
-	@SuppressWarnings("unused")
 	private View headView;
 	private List<View> rowViewList;
 	private List<View> columnViewList;
 	private List<List<View>> bodyViewTable;
+	private List<List<View>> spareRows;
+	private final List<View> detachedViews;
+	private final List<View> disappearingViews;
+	private final List<View> transitioningViews;
 
 	private int rowCount;
 	private int columnCount;
@@ -51,9 +81,26 @@ public class TableFixHeaders extends ViewGroup {
 	private int height;
 
 	private Recycler recycler;
+	private boolean sharedRecycler;
+	private int[] prewarmCounts;
+	private PrewarmIdleHandler prewarmIdleHandler;
 
 	private TableAdapterDataSetObserver tableAdapterDataSetObserver;
 	private boolean needRelayout;
+	private int batchUpdateDepth;
+	private boolean changesScheduled;
+	private final Runnable applyChangesRunnable;
+	private boolean estimatedSizes;
+	private int offscreenColumns;
+	private int offscreenRows;
+	private int removalHysteresis;
+	private int prefetchColumns;
+	private int prefetchRows;
+	private final Runnable prefetchRunnable;
+	private boolean prefetchScheduled;
+	private int prefetchDx;
+	private int prefetchDy;
+	private long frameIntervalNanos;
 
 	private final ImageView[] shadows;
 	private final int shadowSize;
@@ -62,6 +109,25 @@ public class TableFixHeaders extends ViewGroup {
 	private final int maximumVelocity;
 
 	private final Flinger flinger;
+	private final Runnable scrollFrameRunnable;
+	private boolean scrollFrameScheduled;
+	private int pendingScrollX;
+	private int pendingScrollY;
+	private int placeholderVelocity;
+	private CellRenderer cellRenderer;
+	private TileCache tileCache;
+	private final Runnable tileRunnable;
+	private boolean tilesScheduled;
+	private boolean headerCache;
+	private HeaderStrip headerRowStrip;
+	private HeaderStrip headerColumnStrip;
+	private boolean fastFling;
+	private final List<View> blankViews;
+
+	private PerformanceListener performanceListener;
+	private boolean tracing;
+	private String[] recycledViewCounters;
+	private FrameStats frameStats;
 
 	private VelocityTracker velocityTracker;
 
@@ -98,11 +164,17 @@ public class TableFixHeaders extends ViewGroup {
 		super(context, attrs);
 
 		this.headView = null;
-		this.rowViewList = new ArrayList<View>();
-		this.columnViewList = new ArrayList<View>();
-		this.bodyViewTable = new ArrayList<List<View>>();
+		this.rowViewList = new CircularList<View>();
+		this.columnViewList = new CircularList<View>();
+		this.bodyViewTable = new CircularList<List<View>>();
+		this.spareRows = new ArrayList<List<View>>();
+		this.detachedViews = new ArrayList<View>();
+		this.disappearingViews = new ArrayList<View>();
+		this.transitioningViews = new ArrayList<View>();
+		this.blankViews = new ArrayList<View>();
 
 		this.needRelayout = true;
+		this.applyChangesRunnable = new ApplyChangesRunnable();
 
 		this.shadows = new ImageView[4];
 		this.shadows[0] = new ImageView(context);
@@ -117,6 +189,10 @@ public class TableFixHeaders extends ViewGroup {
 		this.shadowSize = getResources().getDimensionPixelSize(R.dimen.shadow_size);
 
 		this.flinger = new Flinger(context);
+		this.scrollFrameRunnable = new ScrollFrameRunnable();
+		this.prefetchRunnable = new PrefetchRunnable();
+		this.tileRunnable = new TileRunnable();
+		this.frameIntervalNanos = (long) (1000000000L / DEFAULT_REFRESH_RATE);
 		final ViewConfiguration configuration = ViewConfiguration.get(context);
 		this.touchSlop = configuration.getScaledTouchSlop();
 		this.minimumVelocity = configuration.getScaledMinimumFlingVelocity();
@@ -148,20 +224,477 @@ public class TableFixHeaders extends ViewGroup {
 		}
 
 		this.adapter = adapter;
+		batchUpdateDepth = 0;
 		tableAdapterDataSetObserver = new TableAdapterDataSetObserver();
 		this.adapter.registerDataSetObserver(tableAdapterDataSetObserver);
 
-		this.recycler = new Recycler(adapter.getViewTypeCount());
+		if (!sharedRecycler) {
+			releaseDetachedViews();
+			this.recycler = new Recycler(adapter.getViewTypeCount());
+		}
+		prewarmCounts = null;
 
 		scrollX = 0;
 		scrollY = 0;
 		firstColumn = 0;
 		firstRow = 0;
 
+		sizesChanged = true;
+		needRelayout = true;
+		requestLayout();
+	}
+
+	/**
+	 * Sets the Recycler that keeps the views this TableFixHeaders does not
+	 * show anymore, so they are reused by the next views it shows. Several
+	 * TableFixHeaders with the same Context can share a Recycler, so a table
+	 * reuses the views another one released instead of inflating new ones.
+	 * 
+	 * @param recycler
+	 *            the Recycler to share, or <code>null</code> to have a Recycler
+	 *            of its own, which is created again with each adapter.
+	 */
+	public void setRecycler(Recycler recycler) {
+		if (recycler != this.recycler) {
+			releaseDetachedViews();
+		}
+		this.sharedRecycler = recycler != null;
+		if (recycler == null && adapter != null) {
+			this.recycler = new Recycler(adapter.getViewTypeCount());
+		} else {
+			this.recycler = recycler;
+		}
+	}
+
+	/**
+	 * Creates views of a view type ahead of time and keeps them in the
+	 * Recycler, so the next layout only has to bind them. The views are
+	 * created one at a time, while the main thread is idle.
+	 * 
+	 * @param itemViewType
+	 *            the view type.
+	 * @param count
+	 *            how many views to create.
+	 * @throws IllegalStateException
+	 *             if the adapter is not a {@link PrewarmTableAdapter}.
+	 * @throws IllegalArgumentException
+	 *             if the view type is not between <code>0</code> and the
+	 *             view type count of the adapter.
+	 */
+	public void prewarmRecycledViews(int itemViewType, int count) {
+		if (!(adapter instanceof PrewarmTableAdapter)) {
+			throw new IllegalStateException("The adapter must be a PrewarmTableAdapter");
+		}
+		if (itemViewType < 0 || itemViewType >= adapter.getViewTypeCount()) {
+			throw new IllegalArgumentException("Invalid view type: " + itemViewType);
+		}
+		if (prewarmCounts == null) {
+			prewarmCounts = new int[adapter.getViewTypeCount()];
+		}
+		prewarmCounts[itemViewType] += count;
+		if (prewarmIdleHandler == null) {
+			prewarmIdleHandler = new PrewarmIdleHandler();
+			Looper.myQueue().addIdleHandler(prewarmIdleHandler);
+		}
+	}
+
+	/*
+	 * Creates the next view asked to prewarmRecycledViews() and returns if
+	 * there are more to create.
+	 */
+	private boolean prewarmNextView() {
+		if (prewarmCounts != null && adapter instanceof PrewarmTableAdapter) {
+			for (int type = 0; type < prewarmCounts.length; type++) {
+				if (prewarmCounts[type] > 0) {
+					prewarmCounts[type]--;
+					final View view = ((PrewarmTableAdapter) adapter).createView(type, this);
+					if (!recycler.addRecycledView(view, type)) {
+						prewarmCounts[type] = 0;
+					}
+					return true;
+				}
+			}
+		}
+		prewarmCounts = null;
+		prewarmIdleHandler = null;
+		return false;
+	}
+
+	@Override
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+
+		frameIntervalNanos = (long) (1000000000L / getRefreshRate());
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+	@SuppressWarnings("deprecation")
+	private float getRefreshRate() {
+		final Display display;
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+			display = getDisplay();
+		} else {
+			display = ((WindowManager) getContext().getSystemService(Context.WINDOW_SERVICE)).getDefaultDisplay();
+		}
+		if (display != null && display.getRefreshRate() >= MIN_REFRESH_RATE) {
+			return display.getRefreshRate();
+		}
+		return DEFAULT_REFRESH_RATE;
+	}
+
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+
+		if (prewarmIdleHandler != null) {
+			Looper.myQueue().removeIdleHandler(prewarmIdleHandler);
+			prewarmIdleHandler = null;
+		}
+		prewarmCounts = null;
+
+		removeCallbacks(scrollFrameRunnable);
+		scrollFrameScheduled = false;
+		pendingScrollX = 0;
+		pendingScrollY = 0;
+		flinger.forceFinished();
+
+		// The recycled views can not stay attached to a window this table left
+		releaseDetachedViews();
+		invalidateHeaderCache();
+		removeCallbacks(tileRunnable);
+		tilesScheduled = false;
+		clearTiles();
+		disappearingViews.clear();
+	}
+
+	/*
+	 * Removes the views this table detached and keeps in the Recycler, either
+	 * because the table leaves the window or because the Recycler is replaced.
+	 * They stay in the Recycler, which can reuse them as any other view.
+	 */
+	private void releaseDetachedViews() {
+		for (View view : detachedViews) {
+			((LayoutParams) view.getLayoutParams()).detachedFrom = null;
+			removeDetachedView(view, false);
+		}
+		detachedViews.clear();
+	}
+
+	/**
+	 * @return the Recycler that keeps the views this TableFixHeaders does not
+	 *         show anymore.
+	 */
+	public Recycler getRecycler() {
+		return recycler;
+	}
+
+	/**
+	 * Returns how many times the sizes of the cells have been computed again,
+	 * either because the data changed or because the columns had to be
+	 * stretched to a new width. The sizes are kept between layout passes
+	 * otherwise.
+	 * 
+	 * @return the number of times the sizes have been computed.
+	 */
+	public int getSizeRebuildCount() {
+		return sizeRebuildCount;
+	}
+
+	/**
+	 * Sets a listener that receives, before each frame is drawn, what this
+	 * TableFixHeaders did since the last one. Without a listener nothing is
+	 * counted or timed. The first frame a new listener receives only counts
+	 * what happened after it was set.
+	 * 
+	 * @param listener
+	 *            the listener, or <code>null</code> to remove it.
+	 */
+	public void setPerformanceListener(PerformanceListener listener) {
+		if (listener != null) {
+			if (frameStats == null) {
+				frameStats = new FrameStats();
+			} else {
+				frameStats.reset();
+			}
+		}
+		this.performanceListener = listener;
+	}
+
+	/**
+	 * @return the renderer that draws the cells that have no view, or
+	 *         <code>null</code> if every cell has a view.
+	 */
+	public CellRenderer getCellRenderer() {
+		return cellRenderer;
+	}
+
+	/**
+	 * Sets a renderer that draws some cells of the body straight on the
+	 * canvas, so they need no view. It suits read-only cells, since a
+	 * rendered cell can not receive touches or focus. The headers always have
+	 * a view.
+	 * 
+	 * @param cellRenderer
+	 *            the renderer, or <code>null</code> to give a view to every
+	 *            cell.
+	 */
+	public void setCellRenderer(CellRenderer cellRenderer) {
+		this.cellRenderer = cellRenderer;
+		needRelayout = true;
+		requestLayout();
+	}
+
+	/**
+	 * Returns if the body is drawn from cached tiles.
+	 * 
+	 * @return <code>true</code> if the body is drawn from cached tiles.
+	 * @see #setBodyTiles(int, int, int)
+	 */
+	public boolean hasBodyTiles() {
+		return tileCache != null;
+	}
+
+	/**
+	 * Draws the body from tiles of some rows and columns that are rendered
+	 * once and kept in a cache, so scrolling a table that does not change
+	 * only draws a few bitmaps. A tile is rendered again when the adapter
+	 * notifies a change of one of its cells.
+	 * 
+	 * The tiles are rendered after a frame that could not draw them, so the
+	 * cells of a tile that is not ready yet stay empty for a frame or two.
+	 * Each tile is a bitmap of 4 bytes per pixel, kept while the tiles fit in
+	 * the given number of bytes. A tile bigger than that is never drawn.
+	 * 
+	 * The cells of the body have no view in this mode: they are drawn by the
+	 * {@link CellRenderer}, if it renders them, or by a view that is bound,
+	 * drawn into the tile and recycled. So they can not receive touches or
+	 * focus. The headers keep their views.
+	 * 
+	 * @param tileRows
+	 *            the number of rows of a tile, or <code>0</code> to draw the
+	 *            body as usual.
+	 * @param tileColumns
+	 *            the number of columns of a tile, or <code>0</code> to draw
+	 *            the body as usual.
+	 * @param maxBytes
+	 *            how many bytes of tiles are kept. It should be more than the
+	 *            tiles the viewport shows at once take.
+	 * @throws IllegalArgumentException
+	 *             if the number of rows or columns is negative, or if there
+	 *             are tiles and maxBytes is not positive.
+	 */
+	public void setBodyTiles(int tileRows, int tileColumns, int maxBytes) {
+		if (tileRows < 0 || tileColumns < 0) {
+			throw new IllegalArgumentException("The rows and columns of a tile can not be negative: " + tileRows + "x" + tileColumns);
+		}
+		removeCallbacks(tileRunnable);
+		tilesScheduled = false;
+		if (tileRows > 0 && tileColumns > 0) {
+			if (maxBytes <= 0) {
+				throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+			}
+			tileCache = new TileCache(tileRows, tileColumns, maxBytes);
+		} else {
+			tileCache = null;
+		}
 		needRelayout = true;
 		requestLayout();
 	}
 
+	/**
+	 * Returns if the header row and the header column are drawn from cached
+	 * display lists.
+	 * 
+	 * @return <code>true</code> if the headers are cached.
+	 * @see #setHeaderCacheEnabled(boolean)
+	 */
+	public boolean isHeaderCacheEnabled() {
+		return headerCache;
+	}
+
+	/**
+	 * Sets if the header row and the header column are each recorded into a
+	 * display list that is drawn instead of their views. Scrolling then only
+	 * moves the display list, which is recorded again when a header enters or
+	 * leaves the viewport, the adapter notifies a change or one of the header
+	 * views invalidates itself, for example for its pressed state or an image
+	 * that finished loading. It needs API 29 and hardware acceleration,
+	 * otherwise the views are drawn as usual.
+	 * 
+	 * @param headerCache
+	 *            <code>true</code> to cache the headers.
+	 */
+	public void setHeaderCacheEnabled(boolean headerCache) {
+		this.headerCache = headerCache;
+		if (headerCache && headerRowStrip == null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+			headerRowStrip = new HeaderStrip();
+			headerColumnStrip = new HeaderStrip();
+		}
+		invalidateHeaderCache();
+		invalidate();
+	}
+
+	/**
+	 * Returns the fling velocity above which the cells are bound with
+	 * placeholders.
+	 * 
+	 * @return the velocity, in pixels per second, or <code>0</code> if the
+	 *         cells are always bound.
+	 * @see #setPlaceholderVelocity(int)
+	 */
+	public int getPlaceholderVelocity() {
+		return placeholderVelocity;
+	}
+
+	/**
+	 * Sets the fling velocity above which the cells that enter the viewport
+	 * are bound with placeholders, because they are going to leave it before
+	 * they can be seen. They are bound for real once the fling slows down
+	 * below it or stops. The placeholders come from the adapter if it is a
+	 * {@link PlaceholderTableAdapter}, otherwise they are blank views. The
+	 * headers are always bound, so the user can still tell where the table
+	 * is.
+	 * 
+	 * @param placeholderVelocity
+	 *            the velocity, in pixels per second, or <code>0</code> to
+	 *            always bind the cells, which is the default.
+	 */
+	public void setPlaceholderVelocity(int placeholderVelocity) {
+		this.placeholderVelocity = placeholderVelocity;
+	}
+
+	/**
+	 * Returns if the work of this TableFixHeaders is traced.
+	 * 
+	 * @return <code>true</code> if it is traced.
+	 * @see #setTracingEnabled(boolean)
+	 */
+	public boolean isTracingEnabled() {
+		return tracing;
+	}
+
+	/**
+	 * Sets if the work of this TableFixHeaders is traced, so it shows up in
+	 * system traces split in sections: measure, layout, scroll, making the
+	 * views of the cells (split in the Recycler, the adapter and the measure
+	 * of the view), moving them and drawing. From API 29 it also traces
+	 * counters with the number of cells with a view and the number of views
+	 * the Recycler keeps of each type. Sections need API 18 and nothing is
+	 * traced before it.
+	 * 
+	 * @param tracing
+	 *            <code>true</code> to trace the work.
+	 */
+	public void setTracingEnabled(boolean tracing) {
+		this.tracing = tracing;
+	}
+
+	/**
+	 * Returns if the sizes of the cells are estimated.
+	 * 
+	 * @return <code>true</code> if the sizes are estimated.
+	 * @see #setEstimatedSizes(boolean)
+	 */
+	public boolean isEstimatedSizes() {
+		return estimatedSizes;
+	}
+
+	/**
+	 * Sets if the sizes of the cells are estimated. When they are, the
+	 * adapter is only asked for the widths and heights of the cells near the
+	 * viewport and the rest use the average of the sizes already known. So
+	 * the time to show the table does not depend on the number of rows or
+	 * columns.
+	 * 
+	 * In this mode the columns are not stretched to fill an exact width. The
+	 * fixed sizes declared by a {@link FixedSizeTableAdapter} take precedence.
+	 * 
+	 * @param estimatedSizes
+	 *            <code>true</code> to estimate the sizes.
+	 */
+	public void setEstimatedSizes(boolean estimatedSizes) {
+		if (this.estimatedSizes != estimatedSizes) {
+			this.estimatedSizes = estimatedSizes;
+			sizesChanged = true;
+			needRelayout = true;
+			requestLayout();
+		}
+	}
+
+	/**
+	 * Returns how many columns are kept bound beyond each side of the
+	 * viewport.
+	 * 
+	 * @return the number of offscreen columns.
+	 * @see #setOffscreenCells(int, int)
+	 */
+	public int getOffscreenColumns() {
+		return offscreenColumns;
+	}
+
+	/**
+	 * Returns how many rows are kept bound beyond each side of the viewport.
+	 * 
+	 * @return the number of offscreen rows.
+	 * @see #setOffscreenCells(int, int)
+	 */
+	public int getOffscreenRows() {
+		return offscreenRows;
+	}
+
+	/**
+	 * Sets how many columns and rows are kept bound beyond each side of the
+	 * viewport, so a short scroll shows cells that are already bound. By
+	 * default there are no offscreen cells.
+	 * 
+	 * @param columns
+	 *            the number of offscreen columns on the left and on the right.
+	 * @param rows
+	 *            the number of offscreen rows on the top and on the bottom.
+	 */
+	public void setOffscreenCells(int columns, int rows) {
+		if (columns < 0 || rows < 0) {
+			throw new IllegalArgumentException("The number of offscreen cells can not be negative");
+		}
+		this.offscreenColumns = columns;
+		this.offscreenRows = rows;
+		if (!needRelayout && adapter != null) {
+			fillViewport();
+		}
+	}
+
+	/**
+	 * Returns how many cells beyond the offscreen ones are kept before they
+	 * are removed.
+	 * 
+	 * @return the number of cells.
+	 * @see #setRemovalHysteresis(int)
+	 */
+	public int getRemovalHysteresis() {
+		return removalHysteresis;
+	}
+
+	/**
+	 * Sets how many cells beyond the offscreen ones are kept before they are
+	 * removed. With <code>1</code>, a cell that leaves the viewport is only
+	 * removed when one more cell has left it after it, so a scroll back and
+	 * forth over the edge of a cell does not bind it again and again. By
+	 * default it is <code>0</code> and cells are removed as soon as they are
+	 * beyond the offscreen ones.
+	 * 
+	 * @param cells
+	 *            the number of cells.
+	 */
+	public void setRemovalHysteresis(int cells) {
+		if (cells < 0) {
+			throw new IllegalArgumentException("The removal hysteresis can not be negative");
+		}
+		this.removalHysteresis = cells;
+		if (!needRelayout && adapter != null) {
+			fillViewport();
+		}
+	}
+
 	@Override
 	public boolean onInterceptTouchEvent(MotionEvent event) {
 		boolean intercept = false;
@@ -207,10 +740,15 @@ public class TableFixHeaders extends ViewGroup {
 				currentX = x2;
 				currentY = y2;
 
-				scrollBy(diffX, diffY);
+				// Applied once per frame, however many events arrive in it
+				pendingScrollX += diffX;
+				pendingScrollY += diffY;
+				scheduleScrollFrame();
 				break;
 			}
 			case MotionEvent.ACTION_UP: {
+				applyPendingScroll();
+
 				final VelocityTracker velocityTracker = this.velocityTracker;
 				velocityTracker.computeCurrentVelocity(1000, maximumVelocity);
 				int velocityX = (int) velocityTracker.getXVelocity();
@@ -239,12 +777,67 @@ public class TableFixHeaders extends ViewGroup {
 			scrollY = y;
 			firstRow = 0;
 		} else {
-			scrollBy(x - sumArray(widths, 1, firstColumn) - scrollX, y - sumArray(heights, 1, firstRow) - scrollY);
+			scrollBy(x - getActualScrollX(), y - getActualScrollY());
+		}
+	}
+
+	/**
+	 * Scrolls the table so the cell is shown at the top left corner of the
+	 * body, or as near as the bounds of the table allow.
+	 * 
+	 * @param row
+	 *            the row of the cell. If the row is <code>-1</code> it is the
+	 *            header.
+	 * @param column
+	 *            the column of the cell. If the column is <code>-1</code> it
+	 *            is the header.
+	 */
+	public void scrollToCell(int row, int column) {
+		if (needRelayout) {
+			scrollX = 0;
+			firstColumn = Math.max(0, column);
+
+			scrollY = 0;
+			firstRow = Math.max(0, row);
+		} else {
+			scrollTo(widths.sum(1, column), heights.sum(1, row));
+		}
+	}
+
+	/**
+	 * Returns the cell shown at a point of this view.
+	 * 
+	 * @param x
+	 *            the horizontal position, relative to this view.
+	 * @param y
+	 *            the vertical position, relative to this view.
+	 * @return an array with the row and the column of the cell, in this order.
+	 *         A <code>-1</code> is a header. <code>null</code> if there is
+	 *         no cell at that point.
+	 */
+	public int[] getCellAt(int x, int y) {
+		if (needRelayout || adapter == null || x < 0 || y < 0 || x >= width || y >= height) {
+			return null;
+		}
+		final int column = getCellAt(x, getActualScrollX(), widths);
+		final int row = getCellAt(y, getActualScrollY(), heights);
+		if (column >= columnCount || row >= rowCount) {
+			return null;
 		}
+		return new int[] { row, column };
+	}
+
+	private int getCellAt(int position, int actualScroll, SizeIndex sizes) {
+		if (position < sizes.get(0)) {
+			return -1;
+		}
+		return sizes.indexOf(position + actualScroll) - 1;
 	}
 
 	@Override
 	public void scrollBy(int x, int y) {
+		final int previousScrollX = scrollX;
+		final int previousScrollY = scrollY;
 		scrollX += x;
 		scrollY += y;
 
@@ -252,128 +845,219 @@ public class TableFixHeaders extends ViewGroup {
 			return;
 		}
 
+		beginTrace("TableFixHeaders.scrollBy");
 		scrollBounds();
+		if (changesScheduled) {
+			// The pending changes may have left views out of place
+			fillViewport();
+			repositionViews();
+		} else {
+			offsetViews(previousScrollX - scrollX, previousScrollY - scrollY);
+			fillViewport();
+		}
+
+		shadowsVisibility();
+
+		awakenScrollBars();
+		traceCounters();
+		endTrace();
+	}
 
+	/*
+	 * Adds the views of the cells that enter the viewport and removes the
+	 * views of the cells that leave it, moving the first row and column.
+	 */
+	private void fillViewport() {
 		/*
-		 * TODO Improve the algorithm. Think big diagonal movements. If we are
-		 * in the top left corner and scrollBy to the opposite corner. We will
-		 * have created the views from the top right corner on the X part and we
-		 * will have eliminated to generate the right at the Y.
+		 * Far jumps drop every row (or column) first, so a diagonal jump does
+		 * not create views that are removed right after.
 		 */
-		if (scrollX == 0) {
-			// no op
-		} else if (scrollX > 0) {
-			while (widths[firstColumn + 1] < scrollX) {
-				if (!rowViewList.isEmpty()) {
-					removeLeft();
-				}
-				scrollX -= widths[firstColumn + 1];
-				firstColumn++;
-			}
-			while (getFilledWidth() < width) {
-				addRight();
+		if (isOutOfBoundCells(scrollY, firstRow, columnViewList.size(), heights, height)) {
+			while (!columnViewList.isEmpty()) {
+				removeBottom();
 			}
-		} else {
-			while (!rowViewList.isEmpty() && getFilledWidth() - widths[firstColumn + rowViewList.size()] >= width) {
+			final int values[] = adjustFirstCellsAndScroll(scrollY, firstRow, heights);
+			scrollY = values[0];
+			firstRow = values[1];
+		}
+		if (isOutOfBoundCells(scrollX, firstColumn, rowViewList.size(), widths, width)) {
+			while (!rowViewList.isEmpty()) {
 				removeRight();
 			}
-			if (rowViewList.isEmpty()) {
-				while (scrollX < 0) {
-					firstColumn--;
-					scrollX += widths[firstColumn + 1];
-				}
-				while (getFilledWidth() < width) {
-					addRight();
-				}
-			} else {
-				while (0 > scrollX) {
-					addLeft();
-					firstColumn--;
-					scrollX += widths[firstColumn + 1];
-				}
-			}
+			final int values[] = adjustFirstCellsAndScroll(scrollX, firstColumn, widths);
+			scrollX = values[0];
+			firstColumn = values[1];
 		}
 
-		if (scrollY == 0) {
-			// no op
-		} else if (scrollY > 0) {
-			while (heights[firstRow + 1] < scrollY) {
-				if (!columnViewList.isEmpty()) {
-					removeTop();
-				}
-				scrollY -= heights[firstRow + 1];
-				firstRow++;
-			}
-			while (getFilledHeight() < height) {
-				addBottom();
-			}
-		} else {
-			while (!columnViewList.isEmpty() && getFilledHeight() - heights[firstRow + columnViewList.size()] >= height) {
-				removeBottom();
-			}
-			if (columnViewList.isEmpty()) {
-				while (scrollY < 0) {
-					firstRow--;
-					scrollY += heights[firstRow + 1];
-				}
-				while (getFilledHeight() < height) {
-					addBottom();
-				}
-			} else {
-				while (0 > scrollY) {
-					addTop();
-					firstRow--;
-					scrollY += heights[firstRow + 1];
-				}
-			}
+		final int leadingColumns = offscreenColumns + Math.max(0, -prefetchColumns);
+		final int trailingColumns = offscreenColumns + Math.max(0, prefetchColumns);
+		while (rowViewList.size() > leadingColumns + removalHysteresis && widths.sum(firstColumn + 1, leadingColumns + removalHysteresis + 1) < scrollX) {
+			removeLeft();
+			scrollX -= widths.get(firstColumn + 1);
+			firstColumn++;
+		}
+		while (firstColumn > 0 && widths.sum(firstColumn + 1, Math.min(leadingColumns, columnCount - firstColumn)) > scrollX) {
+			addLeft();
+			firstColumn--;
+			scrollX += widths.get(firstColumn + 1);
+		}
+		trimRight();
+		while (firstColumn + rowViewList.size() < columnCount && getFilledWidth() - getLastSizes(firstColumn, rowViewList.size(), trailingColumns, widths) < width) {
+			addRight();
 		}
 
-		repositionViews();
-
-		shadowsVisibility();
-
-		awakenScrollBars();
+		final int leadingRows = offscreenRows + Math.max(0, -prefetchRows);
+		final int trailingRows = offscreenRows + Math.max(0, prefetchRows);
+		while (columnViewList.size() > leadingRows + removalHysteresis && heights.sum(firstRow + 1, leadingRows + removalHysteresis + 1) < scrollY) {
+			removeTop();
+			scrollY -= heights.get(firstRow + 1);
+			firstRow++;
+		}
+		while (firstRow > 0 && heights.sum(firstRow + 1, Math.min(leadingRows, rowCount - firstRow)) > scrollY) {
+			addTop();
+			firstRow--;
+			scrollY += heights.get(firstRow + 1);
+		}
+		trimBottom();
+		while (firstRow + columnViewList.size() < rowCount && getFilledHeight() - getLastSizes(firstRow, columnViewList.size(), trailingRows, heights) < height) {
+			addBottom();
+		}
 	}
 
 	/*
-	 * The expected value is: percentageOfViewScrolled * computeHorizontalScrollRange()
+	 * Removes the columns beyond the trailing offscreen ones.
 	 */
-	@Override
-	protected int computeHorizontalScrollExtent() {
-		final float tableSize = width - widths[0];
-		final float contentSize = sumArray(widths) - widths[0];
-		final float percentageOfVisibleView = tableSize / contentSize;
+	private void trimRight() {
+		final int trailingColumns = offscreenColumns + Math.max(0, prefetchColumns);
+		while (rowViewList.size() > trailingColumns + removalHysteresis && getFilledWidth() - getLastSizes(firstColumn, rowViewList.size(), trailingColumns + removalHysteresis + 1, widths) >= width) {
+			removeRight();
+		}
+	}
 
-	    return Math.round(percentageOfVisibleView * tableSize);
+	/*
+	 * Removes the rows beyond the trailing offscreen ones.
+	 */
+	private void trimBottom() {
+		final int trailingRows = offscreenRows + Math.max(0, prefetchRows);
+		while (columnViewList.size() > trailingRows + removalHysteresis && getFilledHeight() - getLastSizes(firstRow, columnViewList.size(), trailingRows + removalHysteresis + 1, heights) >= height) {
+			removeBottom();
+		}
 	}
 
 	/*
-	 * The expected value is between 0 and computeHorizontalScrollRange() - computeHorizontalScrollExtent()
+	 * The sum of the sizes of the last cells with a view.
 	 */
-	@Override
-	protected int computeHorizontalScrollOffset() {
-		final float maxScrollX = sumArray(widths) - width;
-		final float percentageOfViewScrolled = getActualScrollX() / maxScrollX;
-		final int maxHorizontalScrollOffset = width - widths[0] - computeHorizontalScrollExtent();
+	private int getLastSizes(int firstCell, int boundCount, int count, SizeIndex sizes) {
+		count = Math.min(count, boundCount);
+		return sizes.sum(firstCell + boundCount - count + 1, count);
+	}
 
-	    return widths[0] + Math.round(percentageOfViewScrolled * maxHorizontalScrollOffset);
+	/*
+	 * Prefetches after the frame that scrolled by this distance is drawn, in
+	 * the time left until the next one.
+	 */
+	private void schedulePrefetch(int dx, int dy) {
+		prefetchDx = dx;
+		prefetchDy = dy;
+		if (!prefetchScheduled) {
+			prefetchScheduled = true;
+			// Posted from a frame callback, it runs once the frame is drawn
+			post(prefetchRunnable);
+		}
 	}
 
 	/*
-	 * The base measure
+	 * The next frame starts one frame interval after the drawing of the last
+	 * one started.
 	 */
-	@Override
-	protected int computeHorizontalScrollRange() {
-	    return width;
+	private void doPrefetch() {
+		prefetchScheduled = false;
+		final long deadline = getDrawingTime() * 1000000L + frameIntervalNanos;
+		prefetch(prefetchDx, prefetchDy, deadline);
 	}
 
 	/*
-	 * The expected value is: percentageOfViewScrolled * computeVerticalScrollRange()
+	 * Binds, until the deadline, the columns and rows a fling is going to
+	 * show next, so they are ready before they are needed. The distance
+	 * scrolled in the last frame predicts how much to bind.
+	 */
+	private void prefetch(int dx, int dy, long deadline) {
+		if (needRelayout) {
+			return;
+		}
+		final int directionX = Integer.signum(dx);
+		final int directionY = Integer.signum(dy);
+		if (Integer.signum(prefetchColumns) != directionX) {
+			prefetchColumns = 0;
+		}
+		if (Integer.signum(prefetchRows) != directionY) {
+			prefetchRows = 0;
+		}
+
+		while (System.nanoTime() < deadline) {
+			if (Math.abs(prefetchColumns) < MAX_PREFETCH && getPrefetchedSize(directionX, scrollX, getFilledWidth() - width) < Math.abs(dx)
+					&& (directionX > 0 ? firstColumn + rowViewList.size() < columnCount : firstColumn > 0)) {
+				prefetchColumns += directionX;
+			} else if (Math.abs(prefetchRows) < MAX_PREFETCH && getPrefetchedSize(directionY, scrollY, getFilledHeight() - height) < Math.abs(dy)
+					&& (directionY > 0 ? firstRow + columnViewList.size() < rowCount : firstRow > 0)) {
+				prefetchRows += directionY;
+			} else {
+				break;
+			}
+			fillViewport();
+		}
+	}
+
+	private int getPrefetchedSize(int direction, int leadingSize, int trailingSize) {
+		return direction > 0 ? trailingSize : leadingSize;
+	}
+
+	private void stopPrefetch() {
+		removeCallbacks(prefetchRunnable);
+		prefetchScheduled = false;
+		prefetchColumns = 0;
+		prefetchRows = 0;
+	}
+
+	/*
+	 * The expected value is: percentageOfViewScrolled * computeHorizontalScrollRange()
+	 */
+	@Override
+	protected int computeHorizontalScrollExtent() {
+		final float tableSize = width - widths.get(0);
+		final float contentSize = widths.sum() - widths.get(0);
+		final float percentageOfVisibleView = tableSize / contentSize;
+
+	    return Math.round(percentageOfVisibleView * tableSize);
+	}
+
+	/*
+	 * The expected value is between 0 and computeHorizontalScrollRange() - computeHorizontalScrollExtent()
+	 */
+	@Override
+	protected int computeHorizontalScrollOffset() {
+		final float maxScrollX = widths.sum() - width;
+		final float percentageOfViewScrolled = getActualScrollX() / maxScrollX;
+		final int maxHorizontalScrollOffset = width - widths.get(0) - computeHorizontalScrollExtent();
+
+	    return widths.get(0) + Math.round(percentageOfViewScrolled * maxHorizontalScrollOffset);
+	}
+
+	/*
+	 * The base measure
+	 */
+	@Override
+	protected int computeHorizontalScrollRange() {
+	    return width;
+	}
+
+	/*
+	 * The expected value is: percentageOfViewScrolled * computeVerticalScrollRange()
 	 */
 	@Override
 	protected int computeVerticalScrollExtent() {
-		final float tableSize = height - heights[0];
-		final float contentSize = sumArray(heights) - heights[0];
+		final float tableSize = height - heights.get(0);
+		final float contentSize = heights.sum() - heights.get(0);
 		final float percentageOfVisibleView = tableSize / contentSize;
 
 	    return Math.round(percentageOfVisibleView * tableSize);
@@ -384,11 +1068,11 @@ public class TableFixHeaders extends ViewGroup {
 	 */
 	@Override
 	protected int computeVerticalScrollOffset() {
-		final float maxScrollY = sumArray(heights) - height;
+		final float maxScrollY = heights.sum() - height;
 		final float percentageOfViewScrolled = getActualScrollY() / maxScrollY;
-		final int maxHorizontalScrollOffset = height - heights[0] - computeVerticalScrollExtent();
+		final int maxHorizontalScrollOffset = height - heights.get(0) - computeVerticalScrollExtent();
 
-	    return heights[0] + Math.round(percentageOfViewScrolled * maxHorizontalScrollOffset);
+	    return heights.get(0) + Math.round(percentageOfViewScrolled * maxHorizontalScrollOffset);
 	}
 
 	/*
@@ -400,72 +1084,105 @@ public class TableFixHeaders extends ViewGroup {
 	}
 
 	public int getActualScrollX() {
-		return scrollX + sumArray(widths, 1, firstColumn);
+		return scrollX + widths.sum(1, firstColumn);
 	}
 
 	public int getActualScrollY() {
-		return scrollY + sumArray(heights, 1, firstRow);
+		return scrollY + heights.sum(1, firstRow);
 	}
 
 	private int getMaxScrollX() {
-		return Math.max(0, sumArray(widths) - width);
+		return Math.max(0, widths.sum() - width);
 	}
 
 	private int getMaxScrollY() {
-		return Math.max(0, sumArray(heights) - height);
+		return Math.max(0, heights.sum() - height);
 	}
 
 	private int getFilledWidth() {
-		return widths[0] + sumArray(widths, firstColumn + 1, rowViewList.size()) - scrollX;
+		return widths.get(0) + widths.sum(firstColumn + 1, rowViewList.size()) - scrollX;
 	}
 
 	private int getFilledHeight() {
-		return heights[0] + sumArray(heights, firstRow + 1, columnViewList.size()) - scrollY;
+		return heights.get(0) + heights.sum(firstRow + 1, columnViewList.size()) - scrollY;
 	}
 
 	private void addLeft() {
-		addLeftOrRight(firstColumn - 1, 0);
+		addLeftOrRight(firstColumn - 1, 0, true);
 	}
 
 	private void addTop() {
-		addTopAndBottom(firstRow - 1, 0);
+		addTopAndBottom(firstRow - 1, 0, true);
 	}
 
 	private void addRight() {
 		final int size = rowViewList.size();
-		addLeftOrRight(firstColumn + size, size);
+		addLeftOrRight(firstColumn + size, size, true);
 	}
 
 	private void addBottom() {
 		final int size = columnViewList.size();
-		addTopAndBottom(firstRow + size, size);
+		addTopAndBottom(firstRow + size, size, true);
 	}
 
-	private void addLeftOrRight(int column, int index) {
-		View view = makeView(-1, column, widths[column + 1], heights[0]);
+	/*
+	 * Adds the views of a column. If they are not bound, they are blank slots
+	 * the pending changes bind.
+	 */
+	private void addLeftOrRight(int column, int index, boolean bind) {
+		invalidateStrip(headerRowStrip);
+		final int left = getCellStart(column, firstColumn, scrollX, widths);
+		final int right = left + widths.get(column + 1);
+		View view = makeAndSetup(-1, column, left, 0, right, heights.get(0), bind);
 		rowViewList.add(index, view);
 
+		int top = heights.get(0) - scrollY;
 		int i = firstRow;
 		for (List<View> list : bodyViewTable) {
-			view = makeView(i, column, widths[column + 1], heights[i + 1]);
+			final int bottom = top + heights.get(i + 1);
+			view = makeAndSetup(i, column, left, top, right, bottom, bind);
 			list.add(index, view);
+			top = bottom;
 			i++;
 		}
 	}
 
-	private void addTopAndBottom(int row, int index) {
-		View view = makeView(row, -1, widths[0], heights[row + 1]);
+	/*
+	 * Adds the views of a row. If they are not bound, they are blank slots
+	 * the pending changes bind.
+	 */
+	private void addTopAndBottom(int row, int index, boolean bind) {
+		invalidateStrip(headerColumnStrip);
+		final int top = getCellStart(row, firstRow, scrollY, heights);
+		final int bottom = top + heights.get(row + 1);
+		View view = makeAndSetup(row, -1, 0, top, widths.get(0), bottom, bind);
 		columnViewList.add(index, view);
 
-		List<View> list = new ArrayList<View>();
+		List<View> list = obtainRow();
+		int left = widths.get(0) - scrollX;
 		final int size = rowViewList.size() + firstColumn;
 		for (int i = firstColumn; i < size; i++) {
-			view = makeView(row, i, widths[i + 1], heights[row + 1]);
+			final int right = left + widths.get(i + 1);
+			view = makeAndSetup(row, i, left, top, right, bottom, bind);
 			list.add(view);
+			left = right;
 		}
 		bodyViewTable.add(index, list);
 	}
 
+	/*
+	 * The position where a cell starts, relative to this view. It is measured
+	 * from the first cell with a view, so sizes that are not known yet do not
+	 * move it.
+	 */
+	private int getCellStart(int cell, int firstCell, int scroll, SizeIndex sizes) {
+		final int start = sizes.get(0) - scroll;
+		if (cell >= firstCell) {
+			return start + sizes.sum(firstCell + 1, cell - firstCell);
+		}
+		return start - sizes.sum(cell + 1, firstCell - cell);
+	}
+
 	private void removeLeft() {
 		removeLeftOrRight(0);
 	}
@@ -483,258 +1200,848 @@ public class TableFixHeaders extends ViewGroup {
 	}
 
 	private void removeLeftOrRight(int position) {
-		removeView(rowViewList.remove(position));
+		invalidateStrip(headerRowStrip);
+		removeTableView(rowViewList.remove(position));
 		for (List<View> list : bodyViewTable) {
-			removeView(list.remove(position));
+			removeTableView(list.remove(position));
 		}
 	}
 
 	private void removeTopOrBottom(int position) {
-		removeView(columnViewList.remove(position));
+		invalidateStrip(headerColumnStrip);
+		removeTableView(columnViewList.remove(position));
 		List<View> remove = bodyViewTable.remove(position);
 		for (View view : remove) {
-			removeView(view);
+			removeTableView(view);
 		}
+		recycleRow(remove);
 	}
 
-	@Override
-	public void removeView(View view) {
-		super.removeView(view);
-
-		final int typeView = (Integer) view.getTag(R.id.tag_type_view);
-		if (typeView != TableAdapter.IGNORE_ITEM_VIEW_TYPE) {
-			recycler.addRecycledView(view, typeView);
+	private List<View> obtainRow() {
+		final int size = spareRows.size();
+		if (size == 0) {
+			return new CircularList<View>();
 		}
+		return spareRows.remove(size - 1);
 	}
 
-	private void repositionViews() {
-		int left, top, right, bottom, i;
+	private void recycleRow(List<View> list) {
+		list.clear();
+		spareRows.add(list);
+	}
 
-		left = widths[0] - scrollX;
-		i = firstColumn;
-		for (View view : rowViewList) {
-			right = left + widths[++i];
-			view.layout(left, 0, right, heights[0]);
-			left = right;
+	/*
+	 * Takes a view out of the table and keeps it in the Recycler. It stays
+	 * attached to the window while it is there, so showing it again neither
+	 * requests a layout nor calls the window callbacks.
+	 */
+	private void removeTableView(View view) {
+		if (view == null) {
+			return;
 		}
+		final LayoutParams params = (LayoutParams) view.getLayoutParams();
+		if (params.viewType == TableAdapter.IGNORE_ITEM_VIEW_TYPE) {
+			trackDisappearing(view);
+			removeViewInLayout(view);
+			if (params.placeholder) {
+				blankViews.add(view);
+			}
+			if (performanceListener != null) {
+				frameStats.removedViewCount++;
+			}
+			return;
+		}
+		detachViewFromParent(view);
+		if (performanceListener != null) {
+			frameStats.removedViewCount++;
+		}
+		if (recycler.addRecycledView(view, params.viewType)) {
+			keepDetachedView(view);
+		} else {
+			removeDetachedView(view, false);
+		}
+		invalidate();
+	}
 
-		top = heights[0] - scrollY;
-		i = firstRow;
-		for (View view : columnViewList) {
-			bottom = top + heights[++i];
-			view.layout(0, top, widths[0], bottom);
-			top = bottom;
+	/*
+	 * Returns the table that detached a recycled view, if it has not been
+	 * removed yet, and forgets it. The view can be attached again to that
+	 * table, otherwise the table has to remove it.
+	 */
+	private static TableFixHeaders takeDetachedFrom(View view) {
+		if (view == null || !(view.getLayoutParams() instanceof LayoutParams)) {
+			return null;
 		}
+		final LayoutParams params = (LayoutParams) view.getLayoutParams();
+		final TableFixHeaders detachedFrom = params.detachedFrom;
+		if (detachedFrom != null) {
+			detachedFrom.forgetDetachedView(params);
+		}
+		return detachedFrom;
+	}
 
-		top = heights[0] - scrollY;
-		i = firstRow;
-		for (List<View> list : bodyViewTable) {
-			bottom = top + heights[++i];
-			left = widths[0] - scrollX;
-			int j = firstColumn;
-			for (View view : list) {
-				right = left + widths[++j];
-				view.layout(left, top, right, bottom);
-				left = right;
-			}
-			top = bottom;
+	/*
+	 * Remembers a view this table detached and keeps in the Recycler, with its
+	 * position in detachedViews so it can be forgotten without a search.
+	 */
+	private void keepDetachedView(View view) {
+		final LayoutParams params = (LayoutParams) view.getLayoutParams();
+		params.detachedFrom = this;
+		params.detachedIndex = detachedViews.size();
+		detachedViews.add(view);
+	}
+
+	/*
+	 * Forgets a detached view by moving the last one to its position.
+	 */
+	private void forgetDetachedView(LayoutParams params) {
+		final int index = params.detachedIndex;
+		final View last = detachedViews.remove(detachedViews.size() - 1);
+		if (index < detachedViews.size()) {
+			detachedViews.set(index, last);
+			((LayoutParams) last.getLayoutParams()).detachedIndex = index;
+		}
+		params.detachedFrom = null;
+	}
+
+	/*
+	 * Removes a view the Recycler drops from the table that detached it, so
+	 * it does not stay attached to the window.
+	 */
+	static void releaseDroppedView(View view) {
+		final TableFixHeaders detachedFrom = takeDetachedFrom(view);
+		if (detachedFrom != null) {
+			detachedFrom.removeDetachedView(view, false);
 		}
-		invalidate();
 	}
 
 	@Override
-	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-		final int widthMode = MeasureSpec.getMode(widthMeasureSpec);
-		final int heightMode = MeasureSpec.getMode(heightMeasureSpec);
-		final int widthSize = MeasureSpec.getSize(widthMeasureSpec);
-		final int heightSize = MeasureSpec.getSize(heightMeasureSpec);
+	public void removeView(View view) {
+		trackDisappearing(view);
+		super.removeView(view);
 
-		final int w;
-		final int h;
+		final int typeView = ((LayoutParams) view.getLayoutParams()).viewType;
+		if (typeView != TableAdapter.IGNORE_ITEM_VIEW_TYPE) {
+			recycler.addRecycledView(view, typeView);
+		}
+	}
 
-		if (adapter != null) {
-			this.rowCount = adapter.getRowCount();
-			this.columnCount = adapter.getColumnCount();
+	/*
+	 * Reads again every size and rebuilds every view.
+	 */
+	private void reloadTable() {
+		clearTiles();
+		sizesChanged = true;
+		needRelayout = true;
+		requestLayout();
+	}
 
-			widths = new int[columnCount + 1];
-			for (int i = -1; i < columnCount; i++) {
-				widths[i + 1] += adapter.getWidth(i);
+	private void cellChanged(int row, int column) {
+		final boolean rowResized = updateSize(heights, row + 1);
+		final boolean columnResized = updateSize(naturalWidths, column + 1);
+		if (rowResized || columnResized) {
+			clearTiles();
+		} else if (tileCache != null && row != -1 && column != -1) {
+			tileCache.invalidate(row, 1, column, 1);
+		}
+		if (columnResized && widths != naturalWidths) {
+			reloadTable();
+		} else if (!needRelayout) {
+			if (rowResized) {
+				markRowDirty(row);
 			}
-			heights = new int[rowCount + 1];
-			for (int i = -1; i < rowCount; i++) {
-				heights[i + 1] += adapter.getHeight(i);
+			if (columnResized) {
+				markColumnDirty(column);
 			}
-
-			if (widthMode == MeasureSpec.AT_MOST) {
-				w = Math.min(widthSize, sumArray(widths));
-			} else if (widthMode == MeasureSpec.UNSPECIFIED) {
-				w = sumArray(widths);
-			} else {
-				w = widthSize;
-				int sumArray = sumArray(widths);
-				if (sumArray < widthSize) {
-					final float factor = widthSize / (float) sumArray;
-					for (int i = 1; i < widths.length; i++) {
-						widths[i] = Math.round(widths[i] * factor);
-					}
-					widths[0] = widthSize - sumArray(widths, 1, widths.length - 1);
-				}
+			if (!rowResized && !columnResized) {
+				markCellDirty(row, column);
 			}
+			scheduleChanges();
+		}
+	}
 
-			if (heightMode == MeasureSpec.AT_MOST) {
-				h = Math.min(heightSize, sumArray(heights));
-			} else if (heightMode == MeasureSpec.UNSPECIFIED) {
-				h = sumArray(heights);
-			} else {
-				h = heightSize;
-			}
-		} else {
-			if (heightMode == MeasureSpec.AT_MOST || widthMode == MeasureSpec.UNSPECIFIED) {
-				w = 0;
-				h = 0;
-			} else {
-				w = widthSize;
-				h = heightSize;
+	private void rowsChanged(int positionStart, int itemCount) {
+		if (tileCache != null) {
+			tileCache.invalidate(Math.max(0, positionStart), itemCount, 0, columnCount);
+		}
+		heights.update(positionStart + 1, itemCount);
+		if (!needRelayout) {
+			final int end = Math.min(positionStart + itemCount, firstRow + columnViewList.size());
+			for (int row = Math.max(positionStart, firstRow); row < end; row++) {
+				markRowDirty(row);
 			}
+			scheduleChanges();
 		}
+	}
 
-		if (firstRow >= rowCount || getMaxScrollY() - getActualScrollY() < 0) {
-			firstRow = 0;
-			scrollY = Integer.MAX_VALUE;
+	private void columnsChanged(int positionStart, int itemCount) {
+		if (widths != naturalWidths) {
+			reloadTable();
+			return;
 		}
-		if (firstColumn >= columnCount || getMaxScrollX() - getActualScrollX() < 0) {
-			firstColumn = 0;
-			scrollX = Integer.MAX_VALUE;
+		if (tileCache != null) {
+			tileCache.invalidate(0, rowCount, Math.max(0, positionStart), itemCount);
+		}
+		naturalWidths.update(positionStart + 1, itemCount);
+		if (!needRelayout) {
+			final int end = Math.min(positionStart + itemCount, firstColumn + rowViewList.size());
+			for (int column = Math.max(positionStart, firstColumn); column < end; column++) {
+				markColumnDirty(column);
+			}
+			scheduleChanges();
 		}
-
-		setMeasuredDimension(w, h);
 	}
 
-	private int sumArray(int array[]) {
-		return sumArray(array, 0, array.length);
-	}
+	private void rowsInserted(int positionStart, int itemCount) {
+		clearTiles();
+		heights.insert(positionStart + 1, itemCount);
+		rowCount += itemCount;
+		if (positionStart < firstRow) {
+			// Also before a relayout, so it shows the same rows
+			firstRow += itemCount;
+		}
+		if (needRelayout) {
+			return;
+		}
 
-	private int sumArray(int array[], int firstIndex, int count) {
-		int sum = 0;
-		count += firstIndex;
-		for (int i = firstIndex; i < count; i++) {
-			sum += array[i];
+		if (positionStart >= firstRow && positionStart <= firstRow + columnViewList.size()) {
+			final int index = positionStart - firstRow;
+			int added = 0;
+			while (added < itemCount && heights.get(0) - scrollY + heights.sum(firstRow + 1, index + added) < height) {
+				addTopAndBottom(positionStart + added, index + added, false);
+				added++;
+			}
+			if (added < itemCount) {
+				// The rows pushed out of the viewport are not where they were
+				while (columnViewList.size() > index + added) {
+					removeBottom();
+				}
+			} else {
+				trimBottom();
+			}
 		}
-		return sum;
+		renumberRows();
+		scheduleChanges();
 	}
 
-	@SuppressLint("DrawAllocation")
-	@Override
-	protected void onLayout(boolean changed, int l, int t, int r, int b) {
-		if (needRelayout || changed) {
-			needRelayout = false;
-			resetTable();
-
-			if (adapter != null) {
-				width = r - l;
-				height = b - t;
-
-				int left, top, right, bottom;
+	private void rowsRemoved(int positionStart, int itemCount) {
+		clearTiles();
+		final int end = positionStart + itemCount;
+		if (!needRelayout) {
+			final int index = Math.max(positionStart, firstRow) - firstRow;
+			final int count = Math.min(end, firstRow + columnViewList.size()) - firstRow - index;
+			for (int i = 0; i < count; i++) {
+				removeTopOrBottom(index);
+			}
+		}
 
-				right = Math.min(width, sumArray(widths));
-				bottom = Math.min(height, sumArray(heights));
-				addShadow(shadows[0], widths[0], 0, widths[0] + shadowSize, bottom);
-				addShadow(shadows[1], 0, heights[0], right, heights[0] + shadowSize);
-				addShadow(shadows[2], right - shadowSize, 0, right, bottom);
-				addShadow(shadows[3], 0, bottom - shadowSize, right, bottom);
+		heights.remove(positionStart + 1, itemCount);
+		rowCount -= itemCount;
+		if (end <= firstRow) {
+			firstRow -= itemCount;
+		} else if (positionStart <= firstRow) {
+			firstRow = positionStart;
+			scrollY = 0;
+		}
 
-				headView = makeAndSetup(-1, -1, 0, 0, widths[0], heights[0]);
+		if (!needRelayout) {
+			renumberRows();
+			scheduleChanges();
+		}
+	}
 
-				scrollBounds();
-				adjustFirstCellsAndScroll();
+	private void columnsInserted(int positionStart, int itemCount) {
+		clearTiles();
+		if (widths != naturalWidths) {
+			reloadTable();
+			return;
+		}
+		naturalWidths.insert(positionStart + 1, itemCount);
+		columnCount += itemCount;
+		if (positionStart < firstColumn) {
+			// Also before a relayout, so it shows the same columns
+			firstColumn += itemCount;
+		}
+		if (needRelayout) {
+			return;
+		}
 
-				left = widths[0] - scrollX;
-				for (int i = firstColumn; i < columnCount && left < width; i++) {
-					right = left + widths[i + 1];
-					final View view = makeAndSetup(-1, i, left, 0, right, heights[0]);
-					rowViewList.add(view);
-					left = right;
+		if (positionStart >= firstColumn && positionStart <= firstColumn + rowViewList.size()) {
+			final int index = positionStart - firstColumn;
+			int added = 0;
+			while (added < itemCount && widths.get(0) - scrollX + widths.sum(firstColumn + 1, index + added) < width) {
+				addLeftOrRight(positionStart + added, index + added, false);
+				added++;
+			}
+			if (added < itemCount) {
+				// The columns pushed out of the viewport are not where they were
+				while (rowViewList.size() > index + added) {
+					removeRight();
 				}
+			} else {
+				trimRight();
+			}
+		}
+		renumberColumns();
+		scheduleChanges();
+	}
 
-				top = heights[0] - scrollY;
-				for (int i = firstRow; i < rowCount && top < height; i++) {
-					bottom = top + heights[i + 1];
-					final View view = makeAndSetup(i, -1, 0, top, widths[0], bottom);
-					columnViewList.add(view);
-					top = bottom;
-				}
+	private void columnsRemoved(int positionStart, int itemCount) {
+		clearTiles();
+		if (widths != naturalWidths) {
+			reloadTable();
+			return;
+		}
+		final int end = positionStart + itemCount;
+		if (!needRelayout) {
+			final int index = Math.max(positionStart, firstColumn) - firstColumn;
+			final int count = Math.min(end, firstColumn + rowViewList.size()) - firstColumn - index;
+			for (int i = 0; i < count; i++) {
+				removeLeftOrRight(index);
+			}
+		}
 
-				top = heights[0] - scrollY;
-				for (int i = firstRow; i < rowCount && top < height; i++) {
-					bottom = top + heights[i + 1];
-					left = widths[0] - scrollX;
-					List<View> list = new ArrayList<View>();
-					for (int j = firstColumn; j < columnCount && left < width; j++) {
-						right = left + widths[j + 1];
-						final View view = makeAndSetup(i, j, left, top, right, bottom);
-						list.add(view);
-						left = right;
-					}
-					bodyViewTable.add(list);
-					top = bottom;
-				}
+		naturalWidths.remove(positionStart + 1, itemCount);
+		columnCount -= itemCount;
+		if (end <= firstColumn) {
+			firstColumn -= itemCount;
+		} else if (positionStart <= firstColumn) {
+			firstColumn = positionStart;
+			scrollX = 0;
+		}
 
-				shadowsVisibility();
-			}
+		if (!needRelayout) {
+			renumberColumns();
+			scheduleChanges();
 		}
 	}
 
-	private void scrollBounds() {
-		scrollX = scrollBounds(scrollX, firstColumn, widths, width);
-		scrollY = scrollBounds(scrollY, firstRow, heights, height);
+	/*
+	 * Reads again a size and returns if it changed.
+	 */
+	private boolean updateSize(SizeIndex sizes, int index) {
+		final int oldSize = sizes.get(index);
+		sizes.update(index, 1);
+		return sizes.get(index) != oldSize;
 	}
 
-	private int scrollBounds(int desiredScroll, int firstCell, int sizes[], int viewSize) {
-		if (desiredScroll == 0) {
-			// no op
-		} else if (desiredScroll < 0) {
-			desiredScroll = Math.max(desiredScroll, -sumArray(sizes, 1, firstCell));
-		} else {
-			desiredScroll = Math.min(desiredScroll, Math.max(0, sumArray(sizes, firstCell + 1, sizes.length - 1 - firstCell) + sizes[0] - viewSize));
+	private void markCellDirty(int row, int column) {
+		final int i = row - firstRow;
+		final int j = column - firstColumn;
+		if (row == -1 && column == -1) {
+			markDirty(headView);
+		} else if (row == -1) {
+			if (j >= 0 && j < rowViewList.size()) {
+				markDirty(rowViewList.get(j));
+			}
+		} else if (column == -1) {
+			if (i >= 0 && i < columnViewList.size()) {
+				markDirty(columnViewList.get(i));
+			}
+		} else if (i >= 0 && i < columnViewList.size() && j >= 0 && j < rowViewList.size()) {
+			markDirty(bodyViewTable.get(i).get(j));
 		}
-		return desiredScroll;
 	}
 
-	private void adjustFirstCellsAndScroll() {
-		int values[];
-
-		values = adjustFirstCellsAndScroll(scrollX, firstColumn, widths);
-		scrollX = values[0];
-		firstColumn = values[1];
-
-		values = adjustFirstCellsAndScroll(scrollY, firstRow, heights);
-		scrollY = values[0];
-		firstRow = values[1];
+	private void markRowDirty(int row) {
+		if (row == -1) {
+			markDirty(headView);
+			for (View view : rowViewList) {
+				markDirty(view);
+			}
+		} else {
+			final int i = row - firstRow;
+			if (i >= 0 && i < columnViewList.size()) {
+				markDirty(columnViewList.get(i));
+				for (View view : bodyViewTable.get(i)) {
+					markDirty(view);
+				}
+			}
+		}
 	}
 
-	private int[] adjustFirstCellsAndScroll(int scroll, int firstCell, int sizes[]) {
-		if (scroll == 0) {
-			// no op
-		} else if (scroll > 0) {
-			while (sizes[firstCell + 1] < scroll) {
-				firstCell++;
-				scroll -= sizes[firstCell];
+	private void markColumnDirty(int column) {
+		if (column == -1) {
+			markDirty(headView);
+			for (View view : columnViewList) {
+				markDirty(view);
 			}
 		} else {
-			while (scroll < 0) {
-				scroll += sizes[firstCell];
-				firstCell--;
+			final int j = column - firstColumn;
+			if (j >= 0 && j < rowViewList.size()) {
+				markDirty(rowViewList.get(j));
+				for (List<View> list : bodyViewTable) {
+					markDirty(list.get(j));
+				}
 			}
 		}
-		return new int[] { scroll, firstCell };
 	}
 
-	private void shadowsVisibility() {
-		final int actualScrollX = getActualScrollX();
-		final int actualScrollY = getActualScrollY();
-		final int[] remainPixels = {
-				actualScrollX,
-				actualScrollY,
+	private void markDirty(View view) {
+		if (view == null) {
+			// A rendered cell, it is drawn again with the table
+			return;
+		}
+		((LayoutParams) view.getLayoutParams()).dirty = true;
+	}
+
+	private boolean isDirty(View view) {
+		return ((LayoutParams) view.getLayoutParams()).dirty;
+	}
+
+	/*
+	 * Applies the pending changes in the next frame, unless a batch update is
+	 * open. Then they are applied in the first frame after it is closed.
+	 */
+	private void scheduleChanges() {
+		if (!changesScheduled) {
+			changesScheduled = true;
+			if (batchUpdateDepth == 0) {
+				postOnAnimationCompat(applyChangesRunnable);
+			}
+		}
+	}
+
+	/*
+	 * Binds again every view marked as dirty and fixes the viewport, so any
+	 * number of changes costs a single pass.
+	 */
+	private void applyChanges() {
+		if (!changesScheduled || batchUpdateDepth > 0) {
+			return;
+		}
+		changesScheduled = false;
+		if (needRelayout) {
+			// The whole table is going to be rebuilt
+			return;
+		}
+		invalidateHeaderCache();
+
+		if (isDirty(headView)) {
+			headView = rebindView(headView, -1, -1, widths.get(0), heights.get(0));
+		}
+		for (int j = 0; j < rowViewList.size(); j++) {
+			final View view = rowViewList.get(j);
+			if (isDirty(view)) {
+				final int column = firstColumn + j;
+				rowViewList.set(j, rebindView(view, -1, column, widths.get(column + 1), heights.get(0)));
+			}
+		}
+		for (int i = 0; i < columnViewList.size(); i++) {
+			final int row = firstRow + i;
+			final int h = heights.get(row + 1);
+			View view = columnViewList.get(i);
+			if (isDirty(view)) {
+				columnViewList.set(i, rebindView(view, row, -1, widths.get(0), h));
+			}
+			final List<View> list = bodyViewTable.get(i);
+			for (int j = 0; j < list.size(); j++) {
+				view = list.get(j);
+				final int column = firstColumn + j;
+				if (view == null) {
+					if (!isRendered(row, column)) {
+						list.set(j, makeView(row, column, widths.get(column + 1), h));
+					}
+				} else if (isDirty(view)) {
+					if (isRendered(row, column)) {
+						removeTableView(view);
+						list.set(j, null);
+					} else {
+						list.set(j, rebindView(view, row, column, widths.get(column + 1), h));
+					}
+				}
+			}
+		}
+
+		refreshViewport();
+	}
+
+	/*
+	 * Updates the row of the views after rows are inserted or removed.
+	 */
+	private void renumberRows() {
+		for (int i = 0; i < columnViewList.size(); i++) {
+			final int row = firstRow + i;
+			((LayoutParams) columnViewList.get(i).getLayoutParams()).row = row;
+			for (View view : bodyViewTable.get(i)) {
+				if (view != null) {
+					((LayoutParams) view.getLayoutParams()).row = row;
+				}
+			}
+		}
+	}
+
+	/*
+	 * Updates the column of the views after columns are inserted or removed.
+	 */
+	private void renumberColumns() {
+		for (int j = 0; j < rowViewList.size(); j++) {
+			final int column = firstColumn + j;
+			((LayoutParams) rowViewList.get(j).getLayoutParams()).column = column;
+			for (List<View> list : bodyViewTable) {
+				final View view = list.get(j);
+				if (view != null) {
+					((LayoutParams) view.getLayoutParams()).column = column;
+				}
+			}
+		}
+	}
+
+	/*
+	 * Brings the viewport back to a valid state after the data changed.
+	 */
+	private void refreshViewport() {
+		final int overflowX = getActualScrollX() - getMaxScrollX();
+		if (overflowX > 0) {
+			scrollX -= overflowX;
+		}
+		final int overflowY = getActualScrollY() - getMaxScrollY();
+		if (overflowY > 0) {
+			scrollY -= overflowY;
+		}
+
+		scrollBounds();
+		fillViewport();
+
+		repositionViews();
+		layoutShadows();
+		shadowsVisibility();
+
+		if (isMeasureStale()) {
+			requestLayout();
+		}
+	}
+
+	/*
+	 * Moves the views that are already laid out, so a scroll only lays out
+	 * the views of the cells that enter the viewport.
+	 */
+	private void offsetViews(int dx, int dy) {
+		final long start = performanceListener != null ? System.nanoTime() : 0;
+		beginTrace("TableFixHeaders.offsetViews");
+		if (dx != 0) {
+			for (View view : rowViewList) {
+				view.offsetLeftAndRight(dx);
+			}
+		}
+		if (dy != 0) {
+			for (View view : columnViewList) {
+				view.offsetTopAndBottom(dy);
+			}
+		}
+		if (dx != 0 || dy != 0) {
+			for (List<View> list : bodyViewTable) {
+				for (View view : list) {
+					if (view == null) {
+						continue;
+					}
+					if (dx != 0) {
+						view.offsetLeftAndRight(dx);
+					}
+					if (dy != 0) {
+						view.offsetTopAndBottom(dy);
+					}
+				}
+			}
+			invalidate();
+		}
+
+		if (performanceListener != null) {
+			frameStats.repositionNanos += System.nanoTime() - start;
+		}
+		endTrace();
+	}
+
+	private void repositionViews() {
+		final long start = performanceListener != null ? System.nanoTime() : 0;
+		beginTrace("TableFixHeaders.repositionViews");
+		int left, top, right, bottom, i;
+
+		left = widths.get(0) - scrollX;
+		i = firstColumn;
+		for (View view : rowViewList) {
+			right = left + widths.get(++i);
+			view.layout(left, 0, right, heights.get(0));
+			left = right;
+		}
+
+		top = heights.get(0) - scrollY;
+		i = firstRow;
+		for (View view : columnViewList) {
+			bottom = top + heights.get(++i);
+			view.layout(0, top, widths.get(0), bottom);
+			top = bottom;
+		}
+
+		top = heights.get(0) - scrollY;
+		i = firstRow;
+		for (List<View> list : bodyViewTable) {
+			bottom = top + heights.get(++i);
+			left = widths.get(0) - scrollX;
+			int j = firstColumn;
+			for (View view : list) {
+				right = left + widths.get(++j);
+				if (view != null) {
+					view.layout(left, top, right, bottom);
+				}
+				left = right;
+			}
+			top = bottom;
+		}
+		invalidate();
+
+		if (performanceListener != null) {
+			frameStats.repositionNanos += System.nanoTime() - start;
+		}
+		endTrace();
+	}
+
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		final long start = performanceListener != null ? System.nanoTime() : 0;
+		beginTrace("TableFixHeaders.onMeasure");
+		final int widthMode = MeasureSpec.getMode(widthMeasureSpec);
+		final int heightMode = MeasureSpec.getMode(heightMeasureSpec);
+		final int widthSize = MeasureSpec.getSize(widthMeasureSpec);
+		final int heightSize = MeasureSpec.getSize(heightMeasureSpec);
+
+		final int w;
+		final int h;
+
+		if (adapter != null) {
+			if (sizesChanged) {
+				sizesChanged = false;
+				sizeRebuildCount++;
+
+				this.rowCount = adapter.getRowCount();
+				this.columnCount = adapter.getColumnCount();
+
+				naturalWidths = makeSizeIndex(columnCount, true);
+				heights = makeSizeIndex(rowCount, false);
+				widths = null;
+			}
+
+			final int stretchedWidth = getStretchedWidth(widthMeasureSpec);
+			if (widths == null || this.stretchedWidth != stretchedWidth) {
+				this.stretchedWidth = stretchedWidth;
+				needRelayout = true;
+				if (stretchedWidth < 0) {
+					widths = naturalWidths;
+				} else {
+					widths = naturalWidths.stretch(stretchedWidth);
+					if (widths != naturalWidths) {
+						sizeRebuildCount++;
+					}
+				}
+			}
+
+			w = measureSize(widthMeasureSpec, widths);
+			h = measureSize(heightMeasureSpec, heights);
+		} else {
+			if (heightMode == MeasureSpec.AT_MOST || widthMode == MeasureSpec.UNSPECIFIED) {
+				w = 0;
+				h = 0;
+			} else {
+				w = widthSize;
+				h = heightSize;
+			}
+		}
+
+		if (firstRow >= rowCount || getMaxScrollY() - getActualScrollY() < 0) {
+			firstRow = 0;
+			scrollY = Integer.MAX_VALUE;
+			needRelayout = true;
+		}
+		if (firstColumn >= columnCount || getMaxScrollX() - getActualScrollX() < 0) {
+			firstColumn = 0;
+			scrollX = Integer.MAX_VALUE;
+			needRelayout = true;
+		}
+
+		this.widthMeasureSpec = widthMeasureSpec;
+		this.heightMeasureSpec = heightMeasureSpec;
+		setMeasuredDimension(w, h);
+
+		if (performanceListener != null) {
+			frameStats.measureNanos += System.nanoTime() - start;
+		}
+		endTrace();
+	}
+
+	/*
+	 * The width the columns have to be stretched to, or -1 if they fill the
+	 * measure spec on their own.
+	 */
+	private int getStretchedWidth(int widthMeasureSpec) {
+		final int widthSize = MeasureSpec.getSize(widthMeasureSpec);
+		if (MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.EXACTLY && naturalWidths.sum() < widthSize) {
+			return widthSize;
+		}
+		return -1;
+	}
+
+	private int measureSize(int measureSpec, SizeIndex sizes) {
+		final int mode = MeasureSpec.getMode(measureSpec);
+		final int size = MeasureSpec.getSize(measureSpec);
+		if (mode == MeasureSpec.AT_MOST) {
+			return Math.min(size, sizes.sum());
+		} else if (mode == MeasureSpec.UNSPECIFIED) {
+			return sizes.sum();
+		} else {
+			return size;
+		}
+	}
+
+	/*
+	 * True when the sizes have changed enough since the last measure pass to
+	 * change its result.
+	 */
+	private boolean isMeasureStale() {
+		return getStretchedWidth(widthMeasureSpec) != stretchedWidth
+				|| measureSize(widthMeasureSpec, widths) != getMeasuredWidth()
+				|| measureSize(heightMeasureSpec, heights) != getMeasuredHeight();
+	}
+
+	/*
+	 * Builds the index with the sizes of the columns (or rows) the adapter
+	 * has.
+	 */
+	private SizeIndex makeSizeIndex(int count, boolean columns) {
+		final AdapterSizeProvider provider = new AdapterSizeProvider(columns);
+		if (hasFixedSize(columns)) {
+			return new UniformSizeIndex(count + 1, provider);
+		} else if (estimatedSizes) {
+			return new EstimatedSizeIndex(count + 1, provider);
+		} else {
+			return new ArraySizeIndex(count + 1, provider);
+		}
+	}
+
+	private boolean hasFixedSize(boolean columns) {
+		if (adapter instanceof FixedSizeTableAdapter) {
+			final FixedSizeTableAdapter fixedSizeAdapter = (FixedSizeTableAdapter) adapter;
+			return columns ? fixedSizeAdapter.hasFixedColumnWidth() : fixedSizeAdapter.hasFixedRowHeight();
+		}
+		return false;
+	}
+
+	@SuppressLint("DrawAllocation")
+	@Override
+	protected void onLayout(boolean changed, int l, int t, int r, int b) {
+		beginTrace("TableFixHeaders.onLayout");
+		if (needRelayout || changed) {
+			needRelayout = false;
+			resetTable();
+			clearTiles();
+			invalidateHeaderCache();
+
+			if (adapter != null) {
+				width = r - l;
+				height = b - t;
+
+				int left, top, right, bottom;
+
+				for (ImageView shadow : shadows) {
+					addViewInLayout(shadow, -1, generateDefaultLayoutParams(), true);
+				}
+				layoutShadows();
+
+				headView = makeAndSetup(-1, -1, 0, 0, widths.get(0), heights.get(0));
+
+				scrollBounds();
+				adjustFirstCellsAndScroll();
+
+				left = widths.get(0) - scrollX;
+				for (int i = firstColumn; i < columnCount && left < width; i++) {
+					right = left + widths.get(i + 1);
+					final View view = makeAndSetup(-1, i, left, 0, right, heights.get(0));
+					rowViewList.add(view);
+					left = right;
+				}
+
+				top = heights.get(0) - scrollY;
+				for (int i = firstRow; i < rowCount && top < height; i++) {
+					bottom = top + heights.get(i + 1);
+					final View view = makeAndSetup(i, -1, 0, top, widths.get(0), bottom);
+					columnViewList.add(view);
+					top = bottom;
+				}
+
+				top = heights.get(0) - scrollY;
+				for (int i = firstRow; i < rowCount && top < height; i++) {
+					bottom = top + heights.get(i + 1);
+					left = widths.get(0) - scrollX;
+					List<View> list = obtainRow();
+					for (int j = firstColumn; j < columnCount && left < width; j++) {
+						right = left + widths.get(j + 1);
+						final View view = makeAndSetup(i, j, left, top, right, bottom);
+						list.add(view);
+						left = right;
+					}
+					bodyViewTable.add(list);
+					top = bottom;
+				}
+				fillViewport();
+
+				shadowsVisibility();
+				traceCounters();
+			}
+		}
+		endTrace();
+	}
+
+	/*
+	 * True when none of the cells that have a view is inside the viewport, so
+	 * it is cheaper to jump to the new first cell than to walk to it.
+	 */
+	private boolean isOutOfBoundCells(int scroll, int firstCell, int boundCount, SizeIndex sizes, int viewSize) {
+		return boundCount == 0 || scroll >= sizes.sum(firstCell + 1, boundCount) || scroll + viewSize - sizes.get(0) <= 0;
+	}
+
+	private void scrollBounds() {
+		scrollX = scrollBounds(scrollX, firstColumn, widths, width);
+		scrollY = scrollBounds(scrollY, firstRow, heights, height);
+	}
+
+	private int scrollBounds(int desiredScroll, int firstCell, SizeIndex sizes, int viewSize) {
+		if (desiredScroll == 0) {
+			// no op
+		} else if (desiredScroll < 0) {
+			desiredScroll = Math.max(desiredScroll, -sizes.sum(1, firstCell));
+		} else {
+			desiredScroll = Math.min(desiredScroll, Math.max(0, sizes.sum(firstCell + 1, sizes.size() - 1 - firstCell) + sizes.get(0) - viewSize));
+		}
+		return desiredScroll;
+	}
+
+	private void adjustFirstCellsAndScroll() {
+		int values[];
+
+		values = adjustFirstCellsAndScroll(scrollX, firstColumn, widths);
+		scrollX = values[0];
+		firstColumn = values[1];
+
+		values = adjustFirstCellsAndScroll(scrollY, firstRow, heights);
+		scrollY = values[0];
+		firstRow = values[1];
+	}
+
+	private int[] adjustFirstCellsAndScroll(int scroll, int firstCell, SizeIndex sizes) {
+		if (scroll < 0 || (scroll > 0 && sizes.get(firstCell + 1) < scroll)) {
+			final int actualScroll = scroll + sizes.sum(1, firstCell);
+			firstCell = sizes.indexOf(sizes.get(0) + actualScroll) - 1;
+			firstCell = Math.max(0, Math.min(firstCell, sizes.size() - 2));
+			scroll = actualScroll - sizes.sum(1, firstCell);
+		}
+		return new int[] { scroll, firstCell };
+	}
+
+	private void shadowsVisibility() {
+		final int actualScrollX = getActualScrollX();
+		final int actualScrollY = getActualScrollY();
+		final int[] remainPixels = {
+				actualScrollX,
+				actualScrollY,
 				getMaxScrollX() - actualScrollX,
 				getMaxScrollY() - actualScrollY,
 		};
@@ -744,6 +2051,294 @@ public class TableFixHeaders extends ViewGroup {
 		}
 	}
 
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private void postOnAnimationCompat(Runnable action) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			postOnAnimation(action);
+		} else {
+			post(action);
+		}
+	}
+
+	/*
+	 * Draws the body when some of its cells are drawn by the CellRenderer
+	 * instead of by a view. The views are left out when ViewGroup draws them.
+	 */
+	private void drawBody(Canvas canvas, long drawingTime, boolean drawViews) {
+		int top = heights.get(0) - scrollY;
+		int i = firstRow;
+		for (List<View> list : bodyViewTable) {
+			final int bottom = top + heights.get(i + 1);
+			int left = widths.get(0) - scrollX;
+			int j = firstColumn;
+			for (View view : list) {
+				final int right = left + widths.get(j + 1);
+				if (view != null) {
+					if (drawViews) {
+						super.drawChild(canvas, view, drawingTime);
+					}
+				} else if (!quickReject(canvas, left, top, right, bottom)) {
+					cellRenderer.drawCell(canvas, i, j, left, top, right, bottom);
+				}
+				left = right;
+				j++;
+			}
+			top = bottom;
+			i++;
+		}
+	}
+
+	@TargetApi(Build.VERSION_CODES.R)
+	@SuppressWarnings("deprecation")
+	private boolean quickReject(Canvas canvas, int left, int top, int right, int bottom) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+			return canvas.quickReject(left, top, right, bottom);
+		} else {
+			return canvas.quickReject(left, top, right, bottom, Canvas.EdgeType.BW);
+		}
+	}
+
+	private void invalidateHeaderCache() {
+		invalidateStrip(headerRowStrip);
+		invalidateStrip(headerColumnStrip);
+	}
+
+	private static void invalidateStrip(HeaderStrip strip) {
+		if (strip != null) {
+			strip.invalidate();
+		}
+	}
+
+	/*
+	 * A header that invalidates itself has to be recorded again with the rest
+	 * of its strip. The strips only exist from API 29, so this is always
+	 * called when there are any.
+	 */
+	@TargetApi(Build.VERSION_CODES.O)
+	@Override
+	public void onDescendantInvalidated(View child, View target) {
+		super.onDescendantInvalidated(child, target);
+		if (headerRowStrip != null && child.getLayoutParams() instanceof LayoutParams) {
+			final LayoutParams params = (LayoutParams) child.getLayoutParams();
+			if (params.row == -1 && params.column != -1) {
+				headerRowStrip.invalidate();
+			} else if (params.column == -1 && params.row != -1) {
+				headerColumnStrip.invalidate();
+			}
+		}
+	}
+
+	/*
+	 * A display list can only be drawn from API 29 on a hardware accelerated
+	 * canvas.
+	 */
+	@TargetApi(Build.VERSION_CODES.Q)
+	private boolean canDrawHeaderStrips(Canvas canvas) {
+		return Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && canvas.isHardwareAccelerated();
+	}
+
+	/*
+	 * Draws the tiles of the cells with a slot in the viewport. The ones that
+	 * are not in the cache are left empty and rendered after this frame. The
+	 * tiles that only have offscreen cells are skipped.
+	 */
+	private void drawTiles(Canvas canvas) {
+		if (rowViewList.isEmpty() || columnViewList.isEmpty()) {
+			return;
+		}
+		final int tileRows = tileCache.getTileRows();
+		final int tileColumns = tileCache.getTileColumns();
+		final int firstTileRow = firstRow / tileRows;
+		final int lastTileRow = (firstRow + columnViewList.size() - 1) / tileRows;
+		final int firstTileColumn = firstColumn / tileColumns;
+		final int lastTileColumn = (firstColumn + rowViewList.size() - 1) / tileColumns;
+		tileCache.setVisibleTiles(firstTileRow, lastTileRow, firstTileColumn, lastTileColumn);
+		boolean missingTiles = false;
+		for (int tileRow = firstTileRow; tileRow <= lastTileRow; tileRow++) {
+			final int top = getCellStart(tileRow * tileRows, firstRow, scrollY, heights);
+			final int bottom = getCellStart(Math.min((tileRow + 1) * tileRows, rowCount), firstRow, scrollY, heights);
+			for (int tileColumn = firstTileColumn; tileColumn <= lastTileColumn; tileColumn++) {
+				final int left = getCellStart(tileColumn * tileColumns, firstColumn, scrollX, widths);
+				final int right = getCellStart(Math.min((tileColumn + 1) * tileColumns, columnCount), firstColumn, scrollX, widths);
+				if (quickReject(canvas, left, top, right, bottom)) {
+					continue;
+				}
+				final Bitmap tile = tileCache.get(tileRow, tileColumn);
+				if (tile == null) {
+					missingTiles = true;
+				} else {
+					canvas.drawBitmap(tile, left, top, null);
+				}
+			}
+		}
+		if (missingTiles && !tilesScheduled) {
+			tilesScheduled = true;
+			// Posted while drawing, it runs once the frame is drawn
+			post(tileRunnable);
+		}
+	}
+
+	/*
+	 * Renders, until the next frame is due, the tiles in the viewport that are
+	 * not in the cache, and draws them again. At least one tile is rendered,
+	 * so a slow tile does not stop the others.
+	 */
+	private void renderMissingTiles() {
+		tilesScheduled = false;
+		if (tileCache == null || needRelayout || rowViewList.isEmpty() || columnViewList.isEmpty()) {
+			return;
+		}
+		final long deadline = getDrawingTime() * 1000000L + frameIntervalNanos;
+		final int headerWidth = widths.get(0);
+		final int headerHeight = heights.get(0);
+		final int tileRows = tileCache.getTileRows();
+		final int tileColumns = tileCache.getTileColumns();
+		final int lastTileRow = (firstRow + columnViewList.size() - 1) / tileRows;
+		final int lastTileColumn = (firstColumn + rowViewList.size() - 1) / tileColumns;
+		boolean rendered = false;
+		for (int tileRow = firstRow / tileRows; tileRow <= lastTileRow; tileRow++) {
+			final int top = getCellStart(tileRow * tileRows, firstRow, scrollY, heights);
+			final int bottom = getCellStart(Math.min((tileRow + 1) * tileRows, rowCount), firstRow, scrollY, heights);
+			if (bottom <= headerHeight || top >= height) {
+				continue;
+			}
+			for (int tileColumn = firstColumn / tileColumns; tileColumn <= lastTileColumn; tileColumn++) {
+				final int left = getCellStart(tileColumn * tileColumns, firstColumn, scrollX, widths);
+				final int right = getCellStart(Math.min((tileColumn + 1) * tileColumns, columnCount), firstColumn, scrollX, widths);
+				if (right <= headerWidth || left >= width || tileCache.get(tileRow, tileColumn) != null
+						|| !tileCache.canRender(right - left, bottom - top)) {
+					continue;
+				}
+				if (rendered && System.nanoTime() >= deadline) {
+					// The next frame finds the rest missing and posts again
+					invalidate();
+					return;
+				}
+				tileCache.put(tileRow, tileColumn, renderTile(tileRow, tileColumn));
+				rendered = true;
+			}
+		}
+		if (rendered) {
+			invalidate();
+		}
+	}
+
+	private Bitmap renderTile(int tileRow, int tileColumn) {
+		beginTrace("TableFixHeaders.renderTile");
+		final int firstTileRow = tileRow * tileCache.getTileRows();
+		final int firstTileColumn = tileColumn * tileCache.getTileColumns();
+		final int rows = Math.min(tileCache.getTileRows(), rowCount - firstTileRow);
+		final int columns = Math.min(tileCache.getTileColumns(), columnCount - firstTileColumn);
+		// Summed one by one, so estimated sizes are resolved first
+		int tileWidth = 0;
+		for (int column = firstTileColumn; column < firstTileColumn + columns; column++) {
+			tileWidth += widths.get(column + 1);
+		}
+		int tileHeight = 0;
+		for (int row = firstTileRow; row < firstTileRow + rows; row++) {
+			tileHeight += heights.get(row + 1);
+		}
+		final Bitmap tile = Bitmap.createBitmap(Math.max(1, tileWidth), Math.max(1, tileHeight), Bitmap.Config.ARGB_8888);
+		final Canvas canvas = new Canvas(tile);
+
+		int top = 0;
+		for (int row = firstTileRow; row < firstTileRow + rows; row++) {
+			final int bottom = top + heights.get(row + 1);
+			int left = 0;
+			for (int column = firstTileColumn; column < firstTileColumn + columns; column++) {
+				final int right = left + widths.get(column + 1);
+				if (cellRenderer != null && cellRenderer.isRendered(row, column)) {
+					cellRenderer.drawCell(canvas, row, column, left, top, right, bottom);
+				} else {
+					drawCellView(canvas, row, column, left, top, right, bottom);
+				}
+				left = right;
+			}
+			top = bottom;
+		}
+		endTrace();
+		return tile;
+	}
+
+	/*
+	 * Binds a view for a cell, draws it and gives it back to the Recycler
+	 * without adding it to the table.
+	 */
+	private void drawCellView(Canvas canvas, int row, int column, int left, int top, int right, int bottom) {
+		final int itemViewType = adapter.getItemViewType(row, column);
+		final View recycledView = itemViewType == TableAdapter.IGNORE_ITEM_VIEW_TYPE ? null : recycler.getRecycledView(itemViewType);
+		final TableFixHeaders detachedFrom = takeDetachedFrom(recycledView);
+		final View view = adapter.getView(row, column, recycledView, this);
+		final boolean stillDetached = detachedFrom != null && view == recycledView;
+		if (detachedFrom != null && !stillDetached) {
+			detachedFrom.removeDetachedView(recycledView, false);
+		}
+		setupView(view, itemViewType, row, column, right - left, bottom - top);
+		view.layout(0, 0, right - left, bottom - top);
+
+		final int saveCount = canvas.save();
+		canvas.translate(left, top);
+		view.draw(canvas);
+		canvas.restoreToCount(saveCount);
+
+		if (itemViewType != TableAdapter.IGNORE_ITEM_VIEW_TYPE && recycler.addRecycledView(view, itemViewType)) {
+			if (stillDetached) {
+				detachedFrom.keepDetachedView(view);
+			}
+		} else if (stillDetached) {
+			detachedFrom.removeDetachedView(view, false);
+		}
+	}
+
+	private void clearTiles() {
+		if (tileCache != null) {
+			tileCache.clear();
+		}
+	}
+
+	private boolean isRendered(int row, int column) {
+		if (row == -1 || column == -1) {
+			return false;
+		}
+		return tileCache != null || (cellRenderer != null && cellRenderer.isRendered(row, column));
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+	private void beginTrace(String sectionName) {
+		if (tracing && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+			Trace.beginSection(sectionName);
+		}
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+	private void endTrace() {
+		if (tracing && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+			Trace.endSection();
+		}
+	}
+
+	/*
+	 * Traces how many cells have a view and how many views the Recycler keeps
+	 * of each type. The counter names are built again only when the number of
+	 * view types changes.
+	 */
+	@TargetApi(Build.VERSION_CODES.Q)
+	private void traceCounters() {
+		if (tracing && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+			Trace.setCounter("TableFixHeaders.boundCells", (rowViewList.size() + 1) * (columnViewList.size() + 1));
+			final int viewTypeCount = recycler.getViewTypeCount();
+			if (recycledViewCounters == null || recycledViewCounters.length != viewTypeCount) {
+				recycledViewCounters = new String[viewTypeCount];
+				for (int type = 0; type < viewTypeCount; type++) {
+					recycledViewCounters[type] = "TableFixHeaders.recycledViews." + type;
+				}
+			}
+			for (int type = 0; type < viewTypeCount; type++) {
+				Trace.setCounter(recycledViewCounters[type], recycler.getRecycledViewCount(type));
+			}
+		}
+	}
+
 	@TargetApi(Build.VERSION_CODES.HONEYCOMB)
 	@SuppressWarnings("deprecation")
 	private void setAlpha(ImageView imageView, float alpha) {
@@ -754,98 +2349,806 @@ public class TableFixHeaders extends ViewGroup {
 		}
 	}
 
-	private void addShadow(ImageView imageView, int l, int t, int r, int b) {
-		imageView.layout(l, t, r, b);
-		addView(imageView);
+	private void layoutShadows() {
+		final int right = Math.min(width, widths.sum());
+		final int bottom = Math.min(height, heights.sum());
+		shadows[0].layout(widths.get(0), 0, widths.get(0) + shadowSize, bottom);
+		shadows[1].layout(0, heights.get(0), right, heights.get(0) + shadowSize);
+		shadows[2].layout(right - shadowSize, 0, right, bottom);
+		shadows[3].layout(0, bottom - shadowSize, right, bottom);
+	}
+
+	private void resetTable() {
+		headView = null;
+		rowViewList.clear();
+		columnViewList.clear();
+		for (List<View> list : bodyViewTable) {
+			recycleRow(list);
+		}
+		bodyViewTable.clear();
+
+		for (int i = 0; i < getChildCount(); i++) {
+			trackDisappearing(getChildAt(i));
+		}
+		removeAllViewsInLayout();
+	}
+
+	private View makeAndSetup(int row, int column, int left, int top, int right, int bottom) {
+		return makeAndSetup(row, column, left, top, right, bottom, true);
+	}
+
+	private View makeAndSetup(int row, int column, int left, int top, int right, int bottom, boolean bind) {
+		if (isRendered(row, column)) {
+			return null;
+		}
+		final View view;
+		if (bind) {
+			view = makeView(row, column, right - left, bottom - top);
+		} else {
+			view = makeBlankView(row, column, right - left, bottom - top);
+			markDirty(view);
+		}
+		view.layout(left, top, right, bottom);
+		return view;
+	}
+
+	/*
+	 * Draws the table by regions, so each region is clipped once instead of
+	 * once per cell: the body, the header column, the header row and, over
+	 * them, the head and the shadows. Only ViewGroup can draw the views that
+	 * are animating out, so while there are any, or children that are not
+	 * cells, it draws the children and drawChild() clips each cell.
+	 */
+	@Override
+	protected void dispatchDraw(Canvas canvas) {
+		if (performanceListener != null) {
+			performanceListener.onFrame(frameStats);
+			frameStats.reset();
+		}
+
+		if (headView == null) {
+			super.dispatchDraw(canvas);
+			return;
+		}
+
+		final long drawingTime = getDrawingTime();
+		final int headerWidth = widths.get(0);
+		final int headerHeight = heights.get(0);
+		final boolean drawByRegions = !hasUntrackedChildren();
+		int saveCount;
+
+		beginTrace("TableFixHeaders.drawBody");
+		saveCount = canvas.save();
+		canvas.clipRect(headerWidth, headerHeight, width, height);
+		if (tileCache != null) {
+			drawTiles(canvas);
+		} else if (cellRenderer != null) {
+			drawBody(canvas, drawingTime, drawByRegions);
+		} else if (drawByRegions) {
+			for (List<View> list : bodyViewTable) {
+				for (View view : list) {
+					super.drawChild(canvas, view, drawingTime);
+				}
+			}
+		}
+		canvas.restoreToCount(saveCount);
+		endTrace();
+
+		if (!drawByRegions) {
+			super.dispatchDraw(canvas);
+			return;
+		}
+
+		beginTrace("TableFixHeaders.drawHeaders");
+		final boolean drawStrips = headerCache && canDrawHeaderStrips(canvas);
+
+		saveCount = canvas.save();
+		canvas.clipRect(0, headerHeight, headerWidth, height);
+		if (drawStrips) {
+			headerColumnStrip.draw(canvas, columnViewList);
+		} else {
+			for (View view : columnViewList) {
+				super.drawChild(canvas, view, drawingTime);
+			}
+		}
+		canvas.restoreToCount(saveCount);
+
+		saveCount = canvas.save();
+		canvas.clipRect(headerWidth, 0, width, headerHeight);
+		if (drawStrips) {
+			headerRowStrip.draw(canvas, rowViewList);
+		} else {
+			for (View view : rowViewList) {
+				super.drawChild(canvas, view, drawingTime);
+			}
+		}
+		canvas.restoreToCount(saveCount);
+
+		super.drawChild(canvas, headView, drawingTime);
+		endTrace();
+
+		for (ImageView shadow : shadows) {
+			super.drawChild(canvas, shadow, drawingTime);
+		}
+	}
+
+	/*
+	 * Only called when ViewGroup draws the children. Each cell is clipped to
+	 * its region, as dispatchDraw() does once per region otherwise.
+	 */
+	@Override
+	protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+		final LayoutParams params = (LayoutParams) child.getLayoutParams();
+		final int row = params.row;
+		final int column = params.column;
+		if (row == LayoutParams.INVALID_POSITION || (row == -1 && column == -1)) {
+			return super.drawChild(canvas, child, drawingTime);
+		}
+		final int saveCount = canvas.save();
+		if (row == -1) {
+			canvas.clipRect(widths.get(0), 0, width, height);
+		} else if (column == -1) {
+			canvas.clipRect(0, heights.get(0), width, height);
+		} else {
+			canvas.clipRect(widths.get(0), heights.get(0), width, height);
+		}
+		final boolean more = super.drawChild(canvas, child, drawingTime);
+		canvas.restoreToCount(saveCount);
+		return more;
+	}
+
+	/*
+	 * True when some children are not in the grid: views that are animating
+	 * out or in a transition, or views that were added from outside.
+	 */
+	private boolean hasUntrackedChildren() {
+		if (getLayoutTransition() != null || !transitioningViews.isEmpty()) {
+			return true;
+		}
+		for (int i = disappearingViews.size() - 1; i >= 0; i--) {
+			final Animation animation = disappearingViews.get(i).getAnimation();
+			if (animation == null || animation.hasEnded()) {
+				disappearingViews.remove(i);
+			}
+		}
+		if (!disappearingViews.isEmpty()) {
+			return true;
+		}
+
+		int cells = 1 + rowViewList.size() + columnViewList.size();
+		for (List<View> list : bodyViewTable) {
+			for (View view : list) {
+				if (view != null) {
+					cells++;
+				}
+			}
+		}
+		return getChildCount() != cells + shadows.length;
+	}
+
+	/*
+	 * A view that is removed while it has an animation is drawn until the
+	 * animation ends.
+	 */
+	private void trackDisappearing(View view) {
+		if (view.getAnimation() != null) {
+			disappearingViews.add(view);
+		}
+	}
+
+	@Override
+	public void startViewTransition(View view) {
+		super.startViewTransition(view);
+		if (view.getParent() == this && !transitioningViews.contains(view)) {
+			transitioningViews.add(view);
+		}
 	}
 
-	private void resetTable() {
-		headView = null;
-		rowViewList.clear();
-		columnViewList.clear();
-		bodyViewTable.clear();
-
-		removeAllViews();
+	@Override
+	public void endViewTransition(View view) {
+		super.endViewTransition(view);
+		transitioningViews.remove(view);
 	}
 
-	private View makeAndSetup(int row, int column, int left, int top, int right, int bottom) {
-		final View view = makeView(row, column, right - left, bottom - top);
-		view.layout(left, top, right, bottom);
+	private View makeView(int row, int column, int w, int h) {
+		final boolean body = row != -1 && column != -1;
+		if (fastFling && body && !(adapter instanceof PlaceholderTableAdapter)) {
+			return makeBlankView(row, column, w, h);
+		}
+
+		final long start = performanceListener != null ? System.nanoTime() : 0;
+		beginTrace("TableFixHeaders.makeView");
+		beginTrace("TableFixHeaders.recycler");
+		final int itemViewType = adapter.getItemViewType(row, column);
+		final View recycledView;
+		if (itemViewType == TableAdapter.IGNORE_ITEM_VIEW_TYPE) {
+			recycledView = null;
+		} else {
+			recycledView = recycler.getRecycledView(itemViewType);
+			if (performanceListener != null) {
+				frameStats.countRecycled(itemViewType, recycledView != null);
+			}
+		}
+		final TableFixHeaders detachedFrom = takeDetachedFrom(recycledView);
+		endTrace();
+		beginTrace("TableFixHeaders.getView");
+		final boolean placeholder = fastFling && body && itemViewType != TableAdapter.IGNORE_ITEM_VIEW_TYPE;
+		final View view;
+		if (placeholder) {
+			view = ((PlaceholderTableAdapter) adapter).getPlaceholderView(row, column, recycledView, this);
+		} else {
+			view = adapter.getView(row, column, recycledView, this);
+		}
+		endTrace();
+		final boolean reattach = detachedFrom == this && view == recycledView;
+		if (detachedFrom != null && !reattach) {
+			detachedFrom.removeDetachedView(recycledView, false);
+		}
+		beginTrace("TableFixHeaders.measure");
+		setupView(view, itemViewType, row, column, w, h);
+		((LayoutParams) view.getLayoutParams()).placeholder = placeholder;
+		endTrace();
+		addTableView(view, row, column, reattach);
+		endTrace();
+
+		if (performanceListener != null) {
+			frameStats.bindCount++;
+			frameStats.makeViewNanos += System.nanoTime() - start;
+		}
 		return view;
 	}
 
-	@Override
-	protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
-		final boolean ret;
+	/*
+	 * A blank view stands for a cell while a fast fling runs and the adapter
+	 * has no placeholders of its own, or for an inserted cell until the
+	 * pending changes bind it.
+	 */
+	private View makeBlankView(int row, int column, int w, int h) {
+		final int size = blankViews.size();
+		final View view = size == 0 ? new View(getContext()) : blankViews.remove(size - 1);
+		setupView(view, TableAdapter.IGNORE_ITEM_VIEW_TYPE, row, column, w, h);
+		((LayoutParams) view.getLayoutParams()).placeholder = true;
+		addTableView(view, row, column, false);
+		return view;
+	}
 
-		final Integer row = (Integer) child.getTag(R.id.tag_row);
-		final Integer column = (Integer) child.getTag(R.id.tag_column);
-		// row == null => Shadow view
-		if (row == null || (row == -1 && column == -1)) {
-			ret = super.drawChild(canvas, child, drawingTime);
-		} else {
-			canvas.save();
-			if (row == -1) {
-				canvas.clipRect(widths[0], 0, canvas.getWidth(), canvas.getHeight());
-			} else if (column == -1) {
-				canvas.clipRect(0, heights[0], canvas.getWidth(), canvas.getHeight());
-			} else {
-				canvas.clipRect(widths[0], heights[0], canvas.getWidth(), canvas.getHeight());
+	/*
+	 * Starts or stops binding placeholders in the body. When it stops, the
+	 * placeholders in the table are bound for real in the next frame.
+	 */
+	private void setFastFling(boolean fastFling) {
+		if (this.fastFling == fastFling) {
+			return;
+		}
+		this.fastFling = fastFling;
+		if (!fastFling && !needRelayout) {
+			boolean placeholders = false;
+			for (List<View> list : bodyViewTable) {
+				placeholders |= markPlaceholdersDirty(list);
 			}
+			if (placeholders) {
+				scheduleChanges();
+			}
+		}
+	}
 
-			ret = super.drawChild(canvas, child, drawingTime);
-			canvas.restore();
+	private boolean markPlaceholdersDirty(List<View> list) {
+		boolean placeholders = false;
+		for (View view : list) {
+			if (view != null && ((LayoutParams) view.getLayoutParams()).placeholder) {
+				markDirty(view);
+				placeholders = true;
+			}
 		}
-		return ret;
+		return placeholders;
 	}
 
-	private View makeView(int row, int column, int w, int h) {
+	/*
+	 * Binds again the view of a cell. It is reused if the adapter allows it,
+	 * otherwise it is replaced by a new one.
+	 */
+	private View rebindView(View view, int row, int column, int w, int h) {
 		final int itemViewType = adapter.getItemViewType(row, column);
-		final View recycledView;
-		if (itemViewType == TableAdapter.IGNORE_ITEM_VIEW_TYPE) {
-			recycledView = null;
-		} else {
-			recycledView = recycler.getRecycledView(itemViewType);
+		if (itemViewType == TableAdapter.IGNORE_ITEM_VIEW_TYPE || itemViewType != ((LayoutParams) view.getLayoutParams()).viewType) {
+			removeTableView(view);
+			return makeView(row, column, w, h);
 		}
-		final View view = adapter.getView(row, column, recycledView, this);
-		view.setTag(R.id.tag_type_view, itemViewType);
-		view.setTag(R.id.tag_row, row);
-		view.setTag(R.id.tag_column, column);
+		final long start = performanceListener != null ? System.nanoTime() : 0;
+		final View newView = adapter.getView(row, column, view, this);
+		setupView(newView, itemViewType, row, column, w, h);
+		if (newView != view) {
+			removeTableView(view);
+			addTableView(newView, row, column, false);
+		}
+
+		if (performanceListener != null) {
+			frameStats.bindCount++;
+			frameStats.makeViewNanos += System.nanoTime() - start;
+		}
+		return newView;
+	}
+
+	private void setupView(View view, int itemViewType, int row, int column, int w, int h) {
+		final LayoutParams params = getTableLayoutParams(view);
+		params.dirty = false;
+		params.placeholder = false;
+		params.viewType = itemViewType;
+		params.row = row;
+		params.column = column;
 		view.measure(MeasureSpec.makeMeasureSpec(w, MeasureSpec.EXACTLY), MeasureSpec.makeMeasureSpec(h, MeasureSpec.EXACTLY));
-		addTableView(view, row, column);
-		return view;
 	}
 
-	private void addTableView(View view, int row, int column) {
+	/*
+	 * The views the adapter inflates with this view as parent already have
+	 * these params, so they are only created for the other views.
+	 */
+	private LayoutParams getTableLayoutParams(View view) {
+		final ViewGroup.LayoutParams params = view.getLayoutParams();
+		if (params instanceof LayoutParams) {
+			return (LayoutParams) params;
+		}
+		final LayoutParams tableParams = params == null ? generateDefaultLayoutParams() : generateLayoutParams(params);
+		view.setLayoutParams(tableParams);
+		return tableParams;
+	}
+
+	@Override
+	protected LayoutParams generateDefaultLayoutParams() {
+		return new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+	}
+
+	@Override
+	public LayoutParams generateLayoutParams(AttributeSet attrs) {
+		return new LayoutParams(getContext(), attrs);
+	}
+
+	@Override
+	protected LayoutParams generateLayoutParams(ViewGroup.LayoutParams p) {
+		return new LayoutParams(p);
+	}
+
+	@Override
+	protected boolean checkLayoutParams(ViewGroup.LayoutParams p) {
+		return p instanceof LayoutParams;
+	}
+
+	/*
+	 * Adds a view without requesting a layout, because the table lays it out
+	 * itself. A view this table detached is just attached again.
+	 */
+	private void addTableView(View view, int row, int column, boolean reattach) {
+		final int index;
 		if (row == -1 && column == -1) {
-			addView(view, getChildCount() - 4);
+			index = getChildCount() - 4;
 		} else if (row == -1 || column == -1) {
-			addView(view, getChildCount() - 5);
+			index = getChildCount() - 5;
+		} else {
+			index = 0;
+		}
+		if (reattach) {
+			attachViewToParent(view, index, view.getLayoutParams());
 		} else {
-			addView(view, 0);
+			addViewInLayout(view, index, view.getLayoutParams(), true);
+		}
+		invalidate();
+
+		if (performanceListener != null) {
+			frameStats.addedViewCount++;
+		}
+	}
+
+	private class AdapterSizeProvider implements SizeIndex.Provider {
+		private final boolean widths;
+
+		AdapterSizeProvider(boolean widths) {
+			this.widths = widths;
+		}
+
+		@Override
+		public int getSize(int index) {
+			return widths ? adapter.getWidth(index - 1) : adapter.getHeight(index - 1);
 		}
 	}
 
-	private class TableAdapterDataSetObserver extends DataSetObserver {
+	private class TableAdapterDataSetObserver extends TableDataSetObserver {
 
 		@Override
 		public void onChanged() {
-			needRelayout = true;
-			requestLayout();
+			reloadTable();
 		}
 
 		@Override
 		public void onInvalidated() {
 			// Do nothing
 		}
+
+		@Override
+		public void onBeginBatchUpdate() {
+			batchUpdateDepth++;
+		}
+
+		@Override
+		public void onEndBatchUpdate() {
+			batchUpdateDepth = Math.max(0, batchUpdateDepth - 1);
+			if (batchUpdateDepth == 0 && changesScheduled) {
+				postOnAnimationCompat(applyChangesRunnable);
+			}
+		}
+
+		@Override
+		public void onCellChanged(int row, int column) {
+			if (!sizesChanged) {
+				cellChanged(row, column);
+			}
+		}
+
+		@Override
+		public void onRowRangeChanged(int positionStart, int itemCount) {
+			if (!sizesChanged) {
+				rowsChanged(positionStart, itemCount);
+			}
+		}
+
+		@Override
+		public void onRowRangeInserted(int positionStart, int itemCount) {
+			if (!sizesChanged) {
+				rowsInserted(positionStart, itemCount);
+			}
+		}
+
+		@Override
+		public void onRowRangeRemoved(int positionStart, int itemCount) {
+			if (!sizesChanged) {
+				rowsRemoved(positionStart, itemCount);
+			}
+		}
+
+		@Override
+		public void onColumnRangeChanged(int positionStart, int itemCount) {
+			if (!sizesChanged) {
+				columnsChanged(positionStart, itemCount);
+			}
+		}
+
+		@Override
+		public void onColumnRangeInserted(int positionStart, int itemCount) {
+			if (!sizesChanged) {
+				columnsInserted(positionStart, itemCount);
+			}
+		}
+
+		@Override
+		public void onColumnRangeRemoved(int positionStart, int itemCount) {
+			if (!sizesChanged) {
+				columnsRemoved(positionStart, itemCount);
+			}
+		}
+	}
+
+	/**
+	 * The layout params of the children of a {@link TableFixHeaders}. They
+	 * hold the cell the child shows.
+	 */
+	public static class LayoutParams extends ViewGroup.LayoutParams {
+		static final int INVALID_POSITION = Integer.MIN_VALUE;
+
+		int row = INVALID_POSITION;
+		int column = INVALID_POSITION;
+		int viewType = TableAdapter.IGNORE_ITEM_VIEW_TYPE;
+		boolean dirty;
+		boolean placeholder;
+		TableFixHeaders detachedFrom;
+		int detachedIndex;
+
+		/**
+		 * Creates a new set of layout params from the attributes of a XML tag.
+		 * 
+		 * @param context
+		 *            The Context the view is running in.
+		 * @param attrs
+		 *            The attributes of the XML tag.
+		 */
+		public LayoutParams(Context context, AttributeSet attrs) {
+			super(context, attrs);
+		}
+
+		/**
+		 * Creates a new set of layout params with the specified width and
+		 * height.
+		 * 
+		 * @param width
+		 *            the width, either MATCH_PARENT, WRAP_CONTENT or a size in
+		 *            pixels.
+		 * @param height
+		 *            the height, either MATCH_PARENT, WRAP_CONTENT or a size in
+		 *            pixels.
+		 */
+		public LayoutParams(int width, int height) {
+			super(width, height);
+		}
+
+		/**
+		 * Copy constructor. The cell is not copied.
+		 * 
+		 * @param source
+		 *            The layout params to copy from.
+		 */
+		public LayoutParams(ViewGroup.LayoutParams source) {
+			super(source);
+		}
+
+		/**
+		 * @return the row of the cell, <code>-1</code> for the header.
+		 */
+		public int getRow() {
+			return row;
+		}
+
+		/**
+		 * @return the column of the cell, <code>-1</code> for the header.
+		 */
+		public int getColumn() {
+			return column;
+		}
+
+		/**
+		 * @return the view type the adapter gave to the cell.
+		 */
+		public int getViewType() {
+			return viewType;
+		}
+	}
+
+	/**
+	 * Receives the work a {@link TableFixHeaders} did for each frame.
+	 * 
+	 * @see TableFixHeaders#setPerformanceListener(PerformanceListener)
+	 */
+	public interface PerformanceListener {
+
+		/**
+		 * Called before a frame is drawn, with the work done since the last
+		 * frame.
+		 * 
+		 * @param stats
+		 *            the work done. The object is reused for the next frame,
+		 *            so it must not be kept.
+		 */
+		public void onFrame(FrameStats stats);
+	}
+
+	/**
+	 * The work a {@link TableFixHeaders} did for a frame.
+	 */
+	public static class FrameStats {
+		int bindCount;
+		int addedViewCount;
+		int removedViewCount;
+		long makeViewNanos;
+		long repositionNanos;
+		long measureNanos;
+		private int[] recyclerHits = new int[0];
+		private int[] recyclerMisses = new int[0];
+
+		FrameStats() {
+		}
+
+		/**
+		 * @return how many times the adapter was asked for a view.
+		 */
+		public int getBindCount() {
+			return bindCount;
+		}
+
+		/**
+		 * @return how many views were added to the table.
+		 */
+		public int getAddedViewCount() {
+			return addedViewCount;
+		}
+
+		/**
+		 * @return how many views were taken out of the table.
+		 */
+		public int getRemovedViewCount() {
+			return removedViewCount;
+		}
+
+		/**
+		 * @return the nanoseconds spent getting, measuring and adding the
+		 *         views of the cells.
+		 */
+		public long getMakeViewNanos() {
+			return makeViewNanos;
+		}
+
+		/**
+		 * @return the nanoseconds spent moving the views of the cells.
+		 */
+		public long getRepositionNanos() {
+			return repositionNanos;
+		}
+
+		/**
+		 * @return the nanoseconds spent measuring the table.
+		 */
+		public long getMeasureNanos() {
+			return measureNanos;
+		}
+
+		/**
+		 * @return the number of view types with counts of recycled views.
+		 */
+		public int getViewTypeCount() {
+			return recyclerHits.length;
+		}
+
+		/**
+		 * @param viewType
+		 *            the view type.
+		 * @return how many views of the type were reused from the Recycler.
+		 */
+		public int getRecyclerHitCount(int viewType) {
+			return viewType < recyclerHits.length ? recyclerHits[viewType] : 0;
+		}
+
+		/**
+		 * @param viewType
+		 *            the view type.
+		 * @return how many views of the type were not in the Recycler.
+		 */
+		public int getRecyclerMissCount(int viewType) {
+			return viewType < recyclerMisses.length ? recyclerMisses[viewType] : 0;
+		}
+
+		void countRecycled(int viewType, boolean hit) {
+			if (viewType >= recyclerHits.length) {
+				recyclerHits = grow(recyclerHits, viewType + 1);
+				recyclerMisses = grow(recyclerMisses, viewType + 1);
+			}
+			if (hit) {
+				recyclerHits[viewType]++;
+			} else {
+				recyclerMisses[viewType]++;
+			}
+		}
+
+		private static int[] grow(int[] counts, int size) {
+			final int[] grown = new int[size];
+			System.arraycopy(counts, 0, grown, 0, counts.length);
+			return grown;
+		}
+
+		void reset() {
+			bindCount = 0;
+			addedViewCount = 0;
+			removedViewCount = 0;
+			makeViewNanos = 0;
+			repositionNanos = 0;
+			measureNanos = 0;
+			Arrays.fill(recyclerHits, 0);
+			Arrays.fill(recyclerMisses, 0);
+		}
+	}
+
+	private class PrewarmIdleHandler implements MessageQueue.IdleHandler {
+
+		@Override
+		public boolean queueIdle() {
+			return prewarmNextView();
+		}
+	}
+
+	private void scheduleScrollFrame() {
+		if (!scrollFrameScheduled) {
+			scrollFrameScheduled = true;
+			postOnAnimationCompat(scrollFrameRunnable);
+		}
+	}
+
+	private void applyPendingScroll() {
+		if (pendingScrollX != 0 || pendingScrollY != 0) {
+			final int x = pendingScrollX;
+			final int y = pendingScrollY;
+			pendingScrollX = 0;
+			pendingScrollY = 0;
+			scrollBy(x, y);
+		}
+	}
+
+	/*
+	 * Scrolls once per frame, by the distance the finger moved since the last
+	 * frame and by the next step of the fling.
+	 */
+	private void doScrollFrame() {
+		scrollFrameScheduled = false;
+		applyPendingScroll();
+		if (!flinger.isFinished() && flinger.step()) {
+			scheduleScrollFrame();
+		}
+	}
+
+	private class ScrollFrameRunnable implements Runnable {
+
+		@Override
+		public void run() {
+			doScrollFrame();
+		}
+	}
+
+	private class PrefetchRunnable implements Runnable {
+
+		@Override
+		public void run() {
+			doPrefetch();
+		}
+	}
+
+	private class TileRunnable implements Runnable {
+
+		@Override
+		public void run() {
+			renderMissingTiles();
+		}
+	}
+
+	private class ApplyChangesRunnable implements Runnable {
+
+		@Override
+		public void run() {
+			applyChanges();
+		}
+	}
+
+	/*
+	 * A display list with the views of some headers, drawn where the first of
+	 * them is. Scrolling only moves it, so the views are recorded again only
+	 * when the headers change.
+	 */
+	@TargetApi(Build.VERSION_CODES.Q)
+	private class HeaderStrip {
+		private final RenderNode node = new RenderNode("TableFixHeaders.headers");
+
+		void draw(Canvas canvas, List<View> headers) {
+			if (headers.isEmpty()) {
+				return;
+			}
+			final View first = headers.get(0);
+			final int left = first.getLeft();
+			final int top = first.getTop();
+
+			if (!node.hasDisplayList()) {
+				beginTrace("TableFixHeaders.recordHeaders");
+				final View last = headers.get(headers.size() - 1);
+				node.setPosition(0, 0, last.getRight() - left, last.getBottom() - top);
+				final RecordingCanvas nodeCanvas = node.beginRecording();
+				for (View view : headers) {
+					final int saveCount = nodeCanvas.save();
+					nodeCanvas.translate(view.getLeft() - left, view.getTop() - top);
+					view.draw(nodeCanvas);
+					nodeCanvas.restoreToCount(saveCount);
+				}
+				node.endRecording();
+				endTrace();
+			}
+
+			node.setTranslationX(left);
+			node.setTranslationY(top);
+			((RecordingCanvas) canvas).drawRenderNode(node);
+		}
+
+		void invalidate() {
+			node.discardDisplayList();
+		}
 	}
 
 	// http://stackoverflow.com/a/6219382/842697
-	private class Flinger implements Runnable {
+	private class Flinger {
 		private final Scroller scroller;
 
 		private int lastX = 0;
 		private int lastY = 0;
+		private long lastStepTime;
 
 		Flinger(Context context) {
 			scroller = new Scroller(context);
@@ -856,19 +3159,25 @@ public class TableFixHeaders extends ViewGroup {
 
 			lastX = initX;
 			lastY = initY;
-			post(this);
+			lastStepTime = System.nanoTime();
+			scheduleScrollFrame();
 		}
 
-		public void run() {
-			if (scroller.isFinished()) {
-				return;
-			}
-
+		/*
+		 * Scrolls to where the fling is in this frame and returns if it goes on.
+		 */
+		boolean step() {
+			final long start = System.nanoTime();
 			boolean more = scroller.computeScrollOffset();
 			int x = scroller.getCurrX();
 			int y = scroller.getCurrY();
 			int diffX = lastX - x;
 			int diffY = lastY - y;
+			if (placeholderVelocity > 0 && start > lastStepTime) {
+				final double velocity = Math.hypot(diffX, diffY) * 1000000000L / (start - lastStepTime);
+				setFastFling(more && velocity > placeholderVelocity);
+			}
+			lastStepTime = start;
 			if (diffX != 0 || diffY != 0) {
 				scrollBy(diffX, diffY);
 				lastX = x;
@@ -876,8 +3185,12 @@ public class TableFixHeaders extends ViewGroup {
 			}
 
 			if (more) {
-				post(this);
+				schedulePrefetch(diffX, diffY);
+			} else {
+				stopPrefetch();
+				setFastFling(false);
 			}
+			return more;
 		}
 
 		boolean isFinished() {
@@ -888,6 +3201,8 @@ public class TableFixHeaders extends ViewGroup {
 			if (!scroller.isFinished()) {
 				scroller.forceFinished(true);
 			}
+			stopPrefetch();
+			setFastFling(false);
 		}
 	}
 }
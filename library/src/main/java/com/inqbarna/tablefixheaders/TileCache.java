@@ -0,0 +1,157 @@
+package com.inqbarna.tablefixheaders;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.graphics.Bitmap;
+
+/**
+ * Keeps the body of a table rendered in tiles of a fixed number of rows and
+ * columns. The tiles are kept up to a number of bytes; when there is no room
+ * the least recently drawn tiles are dropped.
+ */
+final class TileCache {
+
+	private final int tileRows;
+	private final int tileColumns;
+	private final int maxBytes;
+	private final LinkedHashMap<Long, Bitmap> tiles;
+	private int bytes;
+	private int renderedBytes;
+	private int firstVisibleRow;
+	private int lastVisibleRow = -1;
+	private int firstVisibleColumn;
+	private int lastVisibleColumn = -1;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param tileRows
+	 *            the number of rows of a tile.
+	 * @param tileColumns
+	 *            the number of columns of a tile.
+	 * @param maxBytes
+	 *            the number of bytes of the tiles to keep.
+	 */
+	TileCache(int tileRows, int tileColumns, int maxBytes) {
+		this.tileRows = tileRows;
+		this.tileColumns = tileColumns;
+		this.maxBytes = maxBytes;
+		this.tiles = new LinkedHashMap<Long, Bitmap>(16, 0.75f, true);
+	}
+
+	int getTileRows() {
+		return tileRows;
+	}
+
+	int getTileColumns() {
+		return tileColumns;
+	}
+
+	Bitmap get(int tileRow, int tileColumn) {
+		return tiles.get(key(tileRow, tileColumn));
+	}
+
+	void put(int tileRow, int tileColumn, Bitmap tile) {
+		final int tileBytes = sizeOf(tile);
+		renderedBytes += tileBytes;
+		final Bitmap previous = tiles.put(key(tileRow, tileColumn), tile);
+		if (previous != null) {
+			bytes -= sizeOf(previous);
+		}
+		bytes += tileBytes;
+		final Iterator<Bitmap> iterator = tiles.values().iterator();
+		while (bytes > maxBytes && iterator.hasNext()) {
+			bytes -= sizeOf(iterator.next());
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * Returns if a tile of some size can be rendered. It can not if it does
+	 * not fit in the cache, or if the tiles rendered since the viewport last
+	 * showed other tiles already fill it, because then the viewport shows
+	 * more than the cache keeps and new tiles would only drop the others.
+	 * 
+	 * @param width
+	 *            the width of the tile.
+	 * @param height
+	 *            the height of the tile.
+	 * @return <code>true</code> if the tile can be rendered.
+	 */
+	boolean canRender(int width, int height) {
+		return (long) width * height * 4 <= maxBytes && renderedBytes < maxBytes;
+	}
+
+	/**
+	 * Sets the tiles the viewport shows.
+	 * 
+	 * @param firstTileRow
+	 *            the first row of the tiles.
+	 * @param lastTileRow
+	 *            the last row of the tiles.
+	 * @param firstTileColumn
+	 *            the first column of the tiles.
+	 * @param lastTileColumn
+	 *            the last column of the tiles.
+	 */
+	void setVisibleTiles(int firstTileRow, int lastTileRow, int firstTileColumn, int lastTileColumn) {
+		if (firstTileRow != firstVisibleRow || lastTileRow != lastVisibleRow || firstTileColumn != firstVisibleColumn
+				|| lastTileColumn != lastVisibleColumn) {
+			firstVisibleRow = firstTileRow;
+			lastVisibleRow = lastTileRow;
+			firstVisibleColumn = firstTileColumn;
+			lastVisibleColumn = lastTileColumn;
+			renderedBytes = 0;
+		}
+	}
+
+	/**
+	 * Drops the tiles with any of some cells, so they are rendered again.
+	 * 
+	 * @param firstRow
+	 *            the first row of the cells.
+	 * @param rowCount
+	 *            how many rows.
+	 * @param firstColumn
+	 *            the first column of the cells.
+	 * @param columnCount
+	 *            how many columns.
+	 */
+	void invalidate(int firstRow, int rowCount, int firstColumn, int columnCount) {
+		if (rowCount <= 0 || columnCount <= 0) {
+			return;
+		}
+		final int firstTileRow = firstRow / tileRows;
+		final int lastTileRow = (firstRow + rowCount - 1) / tileRows;
+		final int firstTileColumn = firstColumn / tileColumns;
+		final int lastTileColumn = (firstColumn + columnCount - 1) / tileColumns;
+		final Iterator<Map.Entry<Long, Bitmap>> iterator = tiles.entrySet().iterator();
+		while (iterator.hasNext()) {
+			final Map.Entry<Long, Bitmap> entry = iterator.next();
+			final long key = entry.getKey();
+			final int tileRow = (int) (key >> 32);
+			final int tileColumn = (int) key;
+			if (tileRow >= firstTileRow && tileRow <= lastTileRow && tileColumn >= firstTileColumn && tileColumn <= lastTileColumn) {
+				bytes -= sizeOf(entry.getValue());
+				iterator.remove();
+			}
+		}
+		renderedBytes = 0;
+	}
+
+	void clear() {
+		tiles.clear();
+		bytes = 0;
+		renderedBytes = 0;
+	}
+
+	private static int sizeOf(Bitmap tile) {
+		return tile.getRowBytes() * tile.getHeight();
+	}
+
+	private static long key(int tileRow, int tileColumn) {
+		return ((long) tileRow << 32) | (tileColumn & 0xffffffffL);
+	}
+}
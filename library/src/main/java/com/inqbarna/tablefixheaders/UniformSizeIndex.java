@@ -0,0 +1,126 @@
+package com.inqbarna.tablefixheaders;
+
+/**
+ * A {@link SizeIndex} where every size but the header is the same, so every
+ * sum and lookup is computed without storing the sizes. The sum of all the
+ * sizes must fit in an <code>int</code>, like any other position of a view.
+ */
+class UniformSizeIndex extends SizeIndex {
+
+	private final Provider provider;
+
+	private int count;
+	private int header;
+	private int cell;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param count
+	 *            The number of sizes, header included.
+	 * @param provider
+	 *            Who knows the sizes. Only the header and the first position
+	 *            are read.
+	 * @throws IllegalStateException
+	 *             if the sizes sum more than {@link Integer#MAX_VALUE}.
+	 */
+	UniformSizeIndex(int count, Provider provider) {
+		this.provider = provider;
+		this.count = count;
+		this.header = provider.getSize(0);
+		this.cell = count > 1 ? provider.getSize(1) : 0;
+		checkSum();
+	}
+
+	/**
+	 * Constructor of an index that can not be updated.
+	 * 
+	 * @param count
+	 *            The number of sizes, header included.
+	 * @param header
+	 *            The size of the header.
+	 * @param cell
+	 *            The size of the rest of positions.
+	 * @throws IllegalStateException
+	 *             if the sizes sum more than {@link Integer#MAX_VALUE}.
+	 */
+	UniformSizeIndex(int count, int header, int cell) {
+		this.provider = null;
+		this.count = count;
+		this.header = header;
+		this.cell = cell;
+		checkSum();
+	}
+
+	@Override
+	int size() {
+		return count;
+	}
+
+	@Override
+	int get(int index) {
+		return index == 0 ? header : cell;
+	}
+
+	@Override
+	int prefix(int end) {
+		if (end <= 0) {
+			return 0;
+		}
+		// Never overflows, since the sum of all the sizes fits in an int
+		return (int) (header + (end - 1L) * cell);
+	}
+
+	@Override
+	void update(int index, int count) {
+		if (index == 0) {
+			header = provider.getSize(0);
+		}
+		if (index + count > 1 && this.count > 1) {
+			cell = provider.getSize(1);
+		}
+		checkSum();
+	}
+
+	@Override
+	void insert(int index, int count) {
+		this.count += count;
+		if (this.count == count + 1) {
+			cell = provider.getSize(1);
+		}
+		checkSum();
+	}
+
+	@Override
+	void remove(int index, int count) {
+		this.count -= count;
+	}
+
+	@Override
+	SizeIndex stretch(int size) {
+		final float factor = size / (float) sum();
+		final int stretched = Math.round(cell * factor);
+		return new UniformSizeIndex(count, size - stretched * (count - 1), stretched);
+	}
+
+	@Override
+	int indexOf(int offset) {
+		if (offset < header || count == 0) {
+			return 0;
+		}
+		if (cell == 0) {
+			return count;
+		}
+		return (int) Math.min(count, 1L + (offset - header) / cell);
+	}
+
+	/*
+	 * The sums are computed as ints, so a table whose size does not fit in
+	 * one is rejected instead of giving sums that wrapped around.
+	 */
+	private void checkSum() {
+		if (count > 1 && header + (count - 1L) * cell > Integer.MAX_VALUE) {
+			throw new IllegalStateException("The sizes sum more than Integer.MAX_VALUE pixels");
+		}
+	}
+}
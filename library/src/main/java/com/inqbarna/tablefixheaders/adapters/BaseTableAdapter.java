@@ -1,6 +1,5 @@
 package com.inqbarna.tablefixheaders.adapters;
 
-import android.database.DataSetObservable;
 import android.database.DataSetObserver;
 
 /**
@@ -10,7 +9,8 @@ import android.database.DataSetObserver;
  * @author Brais Gabín (InQBarna)
  */
 public abstract class BaseTableAdapter implements TableAdapter {
-	private final DataSetObservable mDataSetObservable = new DataSetObservable();
+	private final TableDataSetObservable mDataSetObservable = new TableDataSetObservable();
+	private int mBatchUpdateDepth = 0;
 
 	@Override
 	public void registerDataSetObserver(DataSetObserver observer) {
@@ -22,6 +22,30 @@ public abstract class BaseTableAdapter implements TableAdapter {
 		mDataSetObservable.unregisterObserver(observer);
 	}
 
+	/**
+	 * Starts a batch update. The changes notified until
+	 * {@link #endBatchUpdate()} are applied together, in a single pass, at
+	 * the first frame after the batch ends. Batches can be nested; only the
+	 * outermost one is notified.
+	 */
+	public void beginBatchUpdate() {
+		if (mBatchUpdateDepth++ == 0) {
+			mDataSetObservable.notifyBeginBatchUpdate();
+		}
+	}
+
+	/**
+	 * Ends a batch update started with {@link #beginBatchUpdate()}.
+	 */
+	public void endBatchUpdate() {
+		if (mBatchUpdateDepth == 0) {
+			throw new IllegalStateException("endBatchUpdate() without beginBatchUpdate()");
+		}
+		if (--mBatchUpdateDepth == 0) {
+			mDataSetObservable.notifyEndBatchUpdate();
+		}
+	}
+
 	/**
 	 * Notifies the attached observers that the underlying data has been changed
 	 * and any View reflecting the data set should refresh itself.
@@ -30,6 +54,103 @@ public abstract class BaseTableAdapter implements TableAdapter {
 		mDataSetObservable.notifyChanged();
 	}
 
+	/**
+	 * Notifies the attached observers that the data of a cell has been changed
+	 * and the View reflecting it should refresh itself.
+	 * 
+	 * @param row
+	 *            the row of the cell. If the row is <code>-1</code> it is the
+	 *            header.
+	 * @param column
+	 *            the column of the cell. If the column is <code>-1</code> it
+	 *            is the header.
+	 */
+	public void notifyCellChanged(int row, int column) {
+		mDataSetObservable.notifyCellChanged(row, column);
+	}
+
+	/**
+	 * Notifies the attached observers that the data of some rows has been
+	 * changed. Their heights may have changed too.
+	 * 
+	 * @param positionStart
+	 *            the first row that changed.
+	 * @param itemCount
+	 *            the number of rows that changed.
+	 */
+	public void notifyRowRangeChanged(int positionStart, int itemCount) {
+		mDataSetObservable.notifyRowRangeChanged(positionStart, itemCount);
+	}
+
+	/**
+	 * Notifies the attached observers that some rows have been inserted. The
+	 * rows that were at <code>positionStart</code> and after are now
+	 * <code>itemCount</code> positions later.
+	 * 
+	 * @param positionStart
+	 *            the position of the first inserted row.
+	 * @param itemCount
+	 *            the number of inserted rows.
+	 */
+	public void notifyRowRangeInserted(int positionStart, int itemCount) {
+		mDataSetObservable.notifyRowRangeInserted(positionStart, itemCount);
+	}
+
+	/**
+	 * Notifies the attached observers that some rows have been removed. The
+	 * rows that were after them are now <code>itemCount</code> positions
+	 * before.
+	 * 
+	 * @param positionStart
+	 *            the position that the first removed row had.
+	 * @param itemCount
+	 *            the number of removed rows.
+	 */
+	public void notifyRowRangeRemoved(int positionStart, int itemCount) {
+		mDataSetObservable.notifyRowRangeRemoved(positionStart, itemCount);
+	}
+
+	/**
+	 * Notifies the attached observers that the data of some columns has been
+	 * changed. Their widths may have changed too.
+	 * 
+	 * @param positionStart
+	 *            the first column that changed.
+	 * @param itemCount
+	 *            the number of columns that changed.
+	 */
+	public void notifyColumnRangeChanged(int positionStart, int itemCount) {
+		mDataSetObservable.notifyColumnRangeChanged(positionStart, itemCount);
+	}
+
+	/**
+	 * Notifies the attached observers that some columns have been inserted.
+	 * The columns that were at <code>positionStart</code> and after are now
+	 * <code>itemCount</code> positions later.
+	 * 
+	 * @param positionStart
+	 *            the position of the first inserted column.
+	 * @param itemCount
+	 *            the number of inserted columns.
+	 */
+	public void notifyColumnRangeInserted(int positionStart, int itemCount) {
+		mDataSetObservable.notifyColumnRangeInserted(positionStart, itemCount);
+	}
+
+	/**
+	 * Notifies the attached observers that some columns have been removed.
+	 * The columns that were after them are now <code>itemCount</code>
+	 * positions before.
+	 * 
+	 * @param positionStart
+	 *            the position that the first removed column had.
+	 * @param itemCount
+	 *            the number of removed columns.
+	 */
+	public void notifyColumnRangeRemoved(int positionStart, int itemCount) {
+		mDataSetObservable.notifyColumnRangeRemoved(positionStart, itemCount);
+	}
+
 	/**
 	 * Notifies the attached observers that the underlying data is no longer
 	 * valid or available. Once invoked this adapter is no longer valid and
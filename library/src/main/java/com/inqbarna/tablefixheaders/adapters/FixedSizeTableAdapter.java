@@ -0,0 +1,29 @@
+package com.inqbarna.tablefixheaders.adapters;
+
+/**
+ * A {@link TableAdapter} that can declare that all its columns have the same
+ * width or all its rows have the same height. The headers can still have
+ * their own size.
+ * 
+ * When a size is fixed, {@link TableFixHeaders} only asks for the size of the
+ * header and the size of the first column (or row) and computes the rest, so
+ * it does not need memory for each of them.
+ */
+public interface FixedSizeTableAdapter extends TableAdapter {
+
+	/**
+	 * Returns if all the columns have the same width.
+	 * 
+	 * @return <code>true</code> if {@link #getWidth(int)} returns the same
+	 *         value for every column other than the header.
+	 */
+	public boolean hasFixedColumnWidth();
+
+	/**
+	 * Returns if all the rows have the same height.
+	 * 
+	 * @return <code>true</code> if {@link #getHeight(int)} returns the same
+	 *         value for every row other than the header.
+	 */
+	public boolean hasFixedRowHeight();
+}
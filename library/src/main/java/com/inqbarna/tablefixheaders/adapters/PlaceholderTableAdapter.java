@@ -0,0 +1,33 @@
+package com.inqbarna.tablefixheaders.adapters;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * A {@link TableAdapter} that can bind a cheap placeholder of a cell. While a
+ * fast fling runs, {@link TableFixHeaders} shows the placeholders of the
+ * cells that pass by and binds them for real once the fling slows down.
+ */
+public interface PlaceholderTableAdapter extends TableAdapter {
+
+	/**
+	 * Gets a view that stands for the cell while the table scrolls too fast
+	 * to see it. It must be of the same view type as the view of the cell,
+	 * because it is bound again with {@link #getView(int, int, View, ViewGroup)}
+	 * later. It is only asked for the cells of the body, the headers are
+	 * always bound with {@link #getView(int, int, View, ViewGroup)}.
+	 * 
+	 * @param row
+	 *            The row of the item within the adapter's data table of the
+	 *            item whose view we want. It is never the header.
+	 * @param column
+	 *            The column of the item within the adapter's data table of the
+	 *            item whose view we want. It is never the header.
+	 * @param convertView
+	 *            The old view to reuse, if possible.
+	 * @param parent
+	 *            The parent that this view will eventually be attached to.
+	 * @return A placeholder View of the cell.
+	 */
+	public View getPlaceholderView(int row, int column, View convertView, ViewGroup parent);
+}
@@ -0,0 +1,25 @@
+package com.inqbarna.tablefixheaders.adapters;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * A {@link TableAdapter} that can create the view of a view type without a
+ * cell to show, so {@link TableFixHeaders} can create views ahead of time
+ * and the first layout only has to bind them.
+ */
+public interface PrewarmTableAdapter extends TableAdapter {
+
+	/**
+	 * Creates a new view of a view type. It is bound later, through
+	 * {@link #getView(int, int, View, ViewGroup)}.
+	 * 
+	 * @param itemViewType
+	 *            the view type, as returned by
+	 *            {@link #getItemViewType(int, int)}.
+	 * @param parent
+	 *            The parent that the view will eventually be attached to.
+	 * @return a new view of the view type <code>itemViewType</code>.
+	 */
+	public View createView(int itemViewType, ViewGroup parent);
+}
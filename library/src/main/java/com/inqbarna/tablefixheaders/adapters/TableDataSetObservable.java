@@ -0,0 +1,145 @@
+package com.inqbarna.tablefixheaders.adapters;
+
+import android.database.DataSetObservable;
+import android.database.DataSetObserver;
+
+/**
+ * A {@link DataSetObservable} that can also tell its observers which cells,
+ * rows or columns changed. Observers that are not a
+ * {@link TableDataSetObserver} are told that everything changed.
+ */
+public class TableDataSetObservable extends DataSetObservable {
+	private static final int CELL_CHANGED = 0;
+	private static final int ROW_RANGE_CHANGED = 1;
+	private static final int ROW_RANGE_INSERTED = 2;
+	private static final int ROW_RANGE_REMOVED = 3;
+	private static final int COLUMN_RANGE_CHANGED = 4;
+	private static final int COLUMN_RANGE_INSERTED = 5;
+	private static final int COLUMN_RANGE_REMOVED = 6;
+
+	/**
+	 * Invokes {@link TableDataSetObserver#onBeginBatchUpdate()} on each
+	 * observer that is a {@link TableDataSetObserver}.
+	 */
+	public void notifyBeginBatchUpdate() {
+		synchronized (mObservers) {
+			for (int i = mObservers.size() - 1; i >= 0; i--) {
+				final DataSetObserver observer = mObservers.get(i);
+				if (observer instanceof TableDataSetObserver) {
+					((TableDataSetObserver) observer).onBeginBatchUpdate();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Invokes {@link TableDataSetObserver#onEndBatchUpdate()} on each observer
+	 * that is a {@link TableDataSetObserver}.
+	 */
+	public void notifyEndBatchUpdate() {
+		synchronized (mObservers) {
+			for (int i = mObservers.size() - 1; i >= 0; i--) {
+				final DataSetObserver observer = mObservers.get(i);
+				if (observer instanceof TableDataSetObserver) {
+					((TableDataSetObserver) observer).onEndBatchUpdate();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Invokes {@link TableDataSetObserver#onCellChanged(int, int)} on each
+	 * observer.
+	 */
+	public void notifyCellChanged(int row, int column) {
+		notify(CELL_CHANGED, row, column);
+	}
+
+	/**
+	 * Invokes {@link TableDataSetObserver#onRowRangeChanged(int, int)} on each
+	 * observer.
+	 */
+	public void notifyRowRangeChanged(int positionStart, int itemCount) {
+		notify(ROW_RANGE_CHANGED, positionStart, itemCount);
+	}
+
+	/**
+	 * Invokes {@link TableDataSetObserver#onRowRangeInserted(int, int)} on
+	 * each observer.
+	 */
+	public void notifyRowRangeInserted(int positionStart, int itemCount) {
+		notify(ROW_RANGE_INSERTED, positionStart, itemCount);
+	}
+
+	/**
+	 * Invokes {@link TableDataSetObserver#onRowRangeRemoved(int, int)} on each
+	 * observer.
+	 */
+	public void notifyRowRangeRemoved(int positionStart, int itemCount) {
+		notify(ROW_RANGE_REMOVED, positionStart, itemCount);
+	}
+
+	/**
+	 * Invokes {@link TableDataSetObserver#onColumnRangeChanged(int, int)} on
+	 * each observer.
+	 */
+	public void notifyColumnRangeChanged(int positionStart, int itemCount) {
+		notify(COLUMN_RANGE_CHANGED, positionStart, itemCount);
+	}
+
+	/**
+	 * Invokes {@link TableDataSetObserver#onColumnRangeInserted(int, int)} on
+	 * each observer.
+	 */
+	public void notifyColumnRangeInserted(int positionStart, int itemCount) {
+		notify(COLUMN_RANGE_INSERTED, positionStart, itemCount);
+	}
+
+	/**
+	 * Invokes {@link TableDataSetObserver#onColumnRangeRemoved(int, int)} on
+	 * each observer.
+	 */
+	public void notifyColumnRangeRemoved(int positionStart, int itemCount) {
+		notify(COLUMN_RANGE_REMOVED, positionStart, itemCount);
+	}
+
+	private void notify(int event, int first, int second) {
+		synchronized (mObservers) {
+			// Same order as DataSetObservable: the last registered goes first
+			for (int i = mObservers.size() - 1; i >= 0; i--) {
+				final DataSetObserver observer = mObservers.get(i);
+				if (observer instanceof TableDataSetObserver) {
+					notify((TableDataSetObserver) observer, event, first, second);
+				} else {
+					observer.onChanged();
+				}
+			}
+		}
+	}
+
+	private void notify(TableDataSetObserver observer, int event, int first, int second) {
+		switch (event) {
+			case CELL_CHANGED:
+				observer.onCellChanged(first, second);
+				break;
+			case ROW_RANGE_CHANGED:
+				observer.onRowRangeChanged(first, second);
+				break;
+			case ROW_RANGE_INSERTED:
+				observer.onRowRangeInserted(first, second);
+				break;
+			case ROW_RANGE_REMOVED:
+				observer.onRowRangeRemoved(first, second);
+				break;
+			case COLUMN_RANGE_CHANGED:
+				observer.onColumnRangeChanged(first, second);
+				break;
+			case COLUMN_RANGE_INSERTED:
+				observer.onColumnRangeInserted(first, second);
+				break;
+			case COLUMN_RANGE_REMOVED:
+				observer.onColumnRangeRemoved(first, second);
+				break;
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package com.inqbarna.tablefixheaders.adapters;
+
+import android.database.DataSetObserver;
+
+/**
+ * Receives call backs when a data set of a {@link BaseTableAdapter} has been
+ * changed, with the detail of which cells, rows or columns changed.
+ * 
+ * By default every change call back falls back to {@link #onChanged()}, so an
+ * observer only needs to override the ones it can handle better.
+ */
+public abstract class TableDataSetObserver extends DataSetObserver {
+
+	/**
+	 * This method is called when a batch update starts. The changes notified
+	 * until {@link #onEndBatchUpdate()} can be applied all together.
+	 */
+	public void onBeginBatchUpdate() {
+		// Do nothing
+	}
+
+	/**
+	 * This method is called when a batch update ends.
+	 */
+	public void onEndBatchUpdate() {
+		// Do nothing
+	}
+
+	/**
+	 * This method is called when the data of a cell has changed.
+	 * 
+	 * @param row
+	 *            the row of the cell. If the row is <code>-1</code> it is the
+	 *            header.
+	 * @param column
+	 *            the column of the cell. If the column is <code>-1</code> it
+	 *            is the header.
+	 */
+	public void onCellChanged(int row, int column) {
+		onChanged();
+	}
+
+	/**
+	 * This method is called when the data of some rows has changed.
+	 * 
+	 * @param positionStart
+	 *            the first row that changed.
+	 * @param itemCount
+	 *            the number of rows that changed.
+	 */
+	public void onRowRangeChanged(int positionStart, int itemCount) {
+		onChanged();
+	}
+
+	/**
+	 * This method is called when some rows have been inserted.
+	 * 
+	 * @param positionStart
+	 *            the position of the first inserted row.
+	 * @param itemCount
+	 *            the number of inserted rows.
+	 */
+	public void onRowRangeInserted(int positionStart, int itemCount) {
+		onChanged();
+	}
+
+	/**
+	 * This method is called when some rows have been removed.
+	 * 
+	 * @param positionStart
+	 *            the position that the first removed row had.
+	 * @param itemCount
+	 *            the number of removed rows.
+	 */
+	public void onRowRangeRemoved(int positionStart, int itemCount) {
+		onChanged();
+	}
+
+	/**
+	 * This method is called when the data of some columns has changed.
+	 * 
+	 * @param positionStart
+	 *            the first column that changed.
+	 * @param itemCount
+	 *            the number of columns that changed.
+	 */
+	public void onColumnRangeChanged(int positionStart, int itemCount) {
+		onChanged();
+	}
+
+	/**
+	 * This method is called when some columns have been inserted.
+	 * 
+	 * @param positionStart
+	 *            the position of the first inserted column.
+	 * @param itemCount
+	 *            the number of inserted columns.
+	 */
+	public void onColumnRangeInserted(int positionStart, int itemCount) {
+		onChanged();
+	}
+
+	/**
+	 * This method is called when some columns have been removed.
+	 * 
+	 * @param positionStart
+	 *            the position that the first removed column had.
+	 * @param itemCount
+	 *            the number of removed columns.
+	 */
+	public void onColumnRangeRemoved(int positionStart, int itemCount) {
+		onChanged();
+	}
+}
@@ -0,0 +1,225 @@
+package com.inqbarna.tablefixheaders;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks that {@link ArraySizeIndex} gives the same results as summing the
+ * sizes one by one, like the table did before it had an index.
+ */
+public class ArraySizeIndexTest {
+
+	private final Random random = new Random(42);
+
+	@Test
+	public void prefixAndSumMatchSumArray() {
+		for (int count = 1; count <= 40; count++) {
+			final int[] sizes = randomSizes(count);
+			final ArraySizeIndex index = new ArraySizeIndex(sizes.clone());
+
+			assertEquals(sumArray(sizes, 0, count), index.sum());
+			for (int end = 0; end <= count; end++) {
+				assertEquals(sumArray(sizes, 0, end), index.prefix(end));
+			}
+			for (int first = 0; first <= count; first++) {
+				for (int n = 0; first + n <= count; n++) {
+					assertEquals(sumArray(sizes, first, n), index.sum(first, n));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void indexOfMatchesLinearSearch() {
+		for (int count = 1; count <= 40; count++) {
+			final int[] sizes = randomSizes(count);
+			final ArraySizeIndex index = new ArraySizeIndex(sizes.clone());
+
+			final int total = sumArray(sizes, 0, count);
+			for (int offset = 0; offset <= total + 5; offset++) {
+				assertEquals("offset " + offset, linearIndexOf(sizes, offset), index.indexOf(offset));
+			}
+		}
+	}
+
+	@Test
+	public void indexOfSkipsZeroSizes() {
+		final ArraySizeIndex index = new ArraySizeIndex(new int[] { 0, 0, 5, 0, 0, 3, 0 });
+
+		assertEquals(2, index.indexOf(0));
+		assertEquals(2, index.indexOf(4));
+		assertEquals(5, index.indexOf(5));
+		assertEquals(5, index.indexOf(7));
+		assertEquals(7, index.indexOf(8));
+	}
+
+	@Test
+	public void updateReadsTheNewSizes() {
+		final List<Integer> sizes = randomSizeList(30);
+		final ArraySizeIndex index = new ArraySizeIndex(sizes.size(), new ListProvider(sizes));
+
+		for (int i = 0; i < 50; i++) {
+			final int first = random.nextInt(sizes.size());
+			final int count = random.nextInt(sizes.size() - first) + 1;
+			for (int j = first; j < first + count; j++) {
+				sizes.set(j, randomSize());
+			}
+			index.update(first, count);
+			assertMatches(sizes, index);
+		}
+	}
+
+	@Test
+	public void insertAndRemoveMoveTheSizes() {
+		final List<Integer> sizes = randomSizeList(20);
+		final ArraySizeIndex index = new ArraySizeIndex(sizes.size(), new ListProvider(sizes));
+
+		for (int i = 0; i < 50; i++) {
+			final int first = random.nextInt(sizes.size() + 1);
+			final int count = random.nextInt(4) + 1;
+			for (int j = first; j < first + count; j++) {
+				sizes.add(j, randomSize());
+			}
+			index.insert(first, count);
+			assertMatches(sizes, index);
+
+			final int removeFirst = random.nextInt(sizes.size());
+			final int removeCount = Math.min(random.nextInt(4) + 1, sizes.size() - removeFirst);
+			for (int j = 0; j < removeCount; j++) {
+				sizes.remove(removeFirst);
+			}
+			index.remove(removeFirst, removeCount);
+			assertMatches(sizes, index);
+		}
+	}
+
+	@Test
+	public void insertsAfterRemovesReuseTheRoom() {
+		final List<Integer> sizes = randomSizeList(1);
+		final ArraySizeIndex index = new ArraySizeIndex(sizes.size(), new ListProvider(sizes));
+
+		for (int i = 0; i < 200; i++) {
+			final int position = random.nextInt(sizes.size()) + 1;
+			sizes.add(position, randomSize());
+			index.insert(position, 1);
+		}
+		assertMatches(sizes, index);
+		while (sizes.size() > 1) {
+			final int position = random.nextInt(sizes.size() - 1) + 1;
+			sizes.remove(position);
+			index.remove(position, 1);
+		}
+		assertMatches(sizes, index);
+		for (int i = 0; i < 100; i++) {
+			sizes.add(randomSize());
+			index.insert(sizes.size() - 1, 1);
+		}
+		assertMatches(sizes, index);
+	}
+
+	@Test
+	public void stretchMatchesRoundingLoop() {
+		for (int count = 1; count <= 40; count++) {
+			final int[] sizes = randomSizes(count);
+			final int total = sumArray(sizes, 0, count);
+			if (total == 0) {
+				continue;
+			}
+			final int size = total + random.nextInt(1000) + 1;
+
+			final int[] expected = sizes.clone();
+			final float factor = size / (float) total;
+			for (int i = 1; i < expected.length; i++) {
+				expected[i] = Math.round(expected[i] * factor);
+			}
+			expected[0] = size - sumArray(expected, 1, expected.length - 1);
+
+			final SizeIndex stretched = new ArraySizeIndex(sizes.clone()).stretch(size);
+			assertEquals(count, stretched.size());
+			for (int i = 0; i < count; i++) {
+				assertEquals(expected[i], stretched.get(i));
+			}
+			assertEquals(size, stretched.sum());
+		}
+	}
+
+	private void assertMatches(List<Integer> sizes, SizeIndex index) {
+		assertEquals(sizes.size(), index.size());
+		final int[] array = new int[sizes.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = sizes.get(i);
+			assertEquals(array[i], index.get(i));
+		}
+		for (int end = 0; end <= array.length; end++) {
+			assertEquals(sumArray(array, 0, end), index.prefix(end));
+		}
+		final int total = sumArray(array, 0, array.length);
+		for (int offset = 0; offset <= total; offset++) {
+			assertEquals(linearIndexOf(array, offset), index.indexOf(offset));
+		}
+	}
+
+	/*
+	 * How the table summed the sizes before it had an index.
+	 */
+	private static int sumArray(int array[], int firstIndex, int count) {
+		int sum = 0;
+		count += firstIndex;
+		for (int i = firstIndex; i < count; i++) {
+			sum += array[i];
+		}
+		return sum;
+	}
+
+	private static int linearIndexOf(int[] sizes, int offset) {
+		int sum = 0;
+		for (int i = 0; i < sizes.length; i++) {
+			sum += sizes[i];
+			if (offset < sum) {
+				return i;
+			}
+		}
+		return sizes.length;
+	}
+
+	private int[] randomSizes(int count) {
+		final int[] sizes = new int[count];
+		for (int i = 0; i < count; i++) {
+			sizes[i] = randomSize();
+		}
+		return sizes;
+	}
+
+	private List<Integer> randomSizeList(int count) {
+		final List<Integer> sizes = new ArrayList<Integer>();
+		for (int i = 0; i < count; i++) {
+			sizes.add(randomSize());
+		}
+		return sizes;
+	}
+
+	/*
+	 * One size in four is zero, like the cells of hidden rows or columns.
+	 */
+	private int randomSize() {
+		return random.nextInt(4) == 0 ? 0 : random.nextInt(100) + 1;
+	}
+
+	private static class ListProvider implements SizeIndex.Provider {
+		private final List<Integer> sizes;
+
+		ListProvider(List<Integer> sizes) {
+			this.sizes = sizes;
+		}
+
+		@Override
+		public int getSize(int index) {
+			return sizes.get(index);
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package com.inqbarna.tablefixheaders;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Checks {@link UniformSizeIndex} with tables of ten million rows, where the
+ * sums get close to the largest <code>int</code>.
+ */
+public class UniformSizeIndexTest {
+
+	private static final int ROWS = 10000000;
+
+	@Test
+	public void sumsOfTenMillionRowsDoNotOverflow() {
+		// 50 + 10M * 214 = 2140000050, just below Integer.MAX_VALUE
+		final UniformSizeIndex index = new UniformSizeIndex(ROWS + 1, new UniformProvider(50, 214));
+
+		assertEquals(2140000050, index.sum());
+		assertEquals(50 + (ROWS - 1) * 214L, index.prefix(ROWS));
+		assertEquals(214, index.sum(ROWS, 1));
+		assertEquals(214 * 1000, index.sum(ROWS - 999, 1000));
+		assertEquals(ROWS, index.indexOf(index.sum() - 1));
+		assertEquals(ROWS + 1, index.indexOf(index.sum()));
+		assertEquals(ROWS / 2 + 1, index.indexOf(50 + (ROWS / 2) * 214));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsSizesThatDoNotFitInAnInt() {
+		// 50 + 10M * 215 = 2150000050
+		new UniformSizeIndex(ROWS + 1, new UniformProvider(50, 215));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsInsertsThatDoNotFitInAnInt() {
+		final UniformSizeIndex index = new UniformSizeIndex(ROWS + 1, new UniformProvider(50, 214));
+		index.insert(1, 100000);
+	}
+
+	@Test
+	public void matchesTheSumOfEachSize() {
+		final UniformSizeIndex index = new UniformSizeIndex(100, new UniformProvider(37, 13));
+
+		int sum = 0;
+		for (int end = 0; end <= index.size(); end++) {
+			assertEquals(sum, index.prefix(end));
+			if (end < index.size()) {
+				sum += index.get(end);
+			}
+		}
+	}
+
+	private static class UniformProvider implements SizeIndex.Provider {
+		private final int header;
+		private final int cell;
+
+		UniformProvider(int header, int cell) {
+			this.header = header;
+			this.cell = cell;
+		}
+
+		@Override
+		public int getSize(int index) {
+			return index == 0 ? header : cell;
+		}
+	}
+}
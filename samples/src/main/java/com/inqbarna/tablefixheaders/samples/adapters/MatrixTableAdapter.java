@@ -1,6 +1,7 @@
 package com.inqbarna.tablefixheaders.samples.adapters;
 
 import com.inqbarna.tablefixheaders.adapters.BaseTableAdapter;
+import com.inqbarna.tablefixheaders.adapters.FixedSizeTableAdapter;
 
 import android.content.Context;
 import android.content.res.Resources;
@@ -10,7 +11,7 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
-public class MatrixTableAdapter<T> extends BaseTableAdapter {
+public class MatrixTableAdapter<T> extends BaseTableAdapter implements FixedSizeTableAdapter {
 
 	private final static int WIDTH_DIP = 110;
 	private final static int HEIGHT_DIP = 32;
@@ -70,6 +71,16 @@ public class MatrixTableAdapter<T> extends BaseTableAdapter {
 		return width;
 	}
 
+	@Override
+	public boolean hasFixedColumnWidth() {
+		return true;
+	}
+
+	@Override
+	public boolean hasFixedRowHeight() {
+		return true;
+	}
+
 	@Override
 	public int getItemViewType(int row, int column) {
 		return 0;